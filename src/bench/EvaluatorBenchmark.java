@@ -0,0 +1,78 @@
+package bench;
+
+import engine.ComputerPlayer;
+import engine.Evaluator;
+import engine.GameEngine;
+import engine.GameState;
+import engine.SearchState;
+import engine.StateView;
+import engine.Strategy;
+import manager.Deal;
+import manager.GameRandom;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/*
+ *   Reports how long the evaluator takes to score a position and how much it allocates while doing so. Positions are
+ * taken from the start of turns in computer-vs-computer games and scored for both seats over and over.
+ *
+ *   Usage: java bench.EvaluatorBenchmark [evaluations]
+ */
+public final class EvaluatorBenchmark {
+    private EvaluatorBenchmark() {}
+
+    private static final int POSITIONS = 4096;
+
+    private static float sink = 0;
+
+    public static void main(String[] args) {
+        long evaluations = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000;
+        SearchState[] positions = collectPositions();
+        Evaluator evaluator = Evaluator.get();
+
+        System.out.println("Warming up...");
+        run(evaluator, positions, evaluations/10);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        run(evaluator, positions, evaluations);
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        System.out.printf("%,d evaluations in %.2f s: %.1f ns each, %,d bytes allocated%n",
+            evaluations, nanos/1e9, (double) nanos/evaluations, allocated);
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void run(Evaluator evaluator, SearchState[] positions, long evaluations) {
+        float total = 0;
+        for (long i = 0; i < evaluations; i++) {
+            total += evaluator.evaluate(positions[(int) (i % POSITIONS)], (int) (i/POSITIONS & 1));
+        }
+        sink += total;
+    }
+
+    private static SearchState[] collectPositions() {
+        SearchState[] positions = new SearchState[POSITIONS];
+        Strategy[] players = {new ComputerPlayer(), new ComputerPlayer()};
+        SplittableRandom random = new SplittableRandom(0);
+        int n = 0;
+        long seed = 0;
+        while (n < POSITIONS) {
+            GameState state = new GameState(new Deal(new GameRandom(seed++)), true);
+            GameEngine engine = new GameEngine(state);
+            StateView view = new StateView(engine);
+            while (!state.isOver() && n < POSITIONS) {
+                if (!state.hasDrawn()) {
+                    positions[n] = new SearchState(state.seats());
+                    positions[n++].load(state, random);
+                }
+                view.apply(players[state.getTurn()].decide(view));
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import engine.ComputerPlayer;
+import engine.GameEngine;
+import engine.GameState;
+import engine.MonteCarloPlayer;
+import engine.StateView;
+import engine.Strategy;
+import manager.Deal;
+import manager.GameRandom;
+
+/*
+ *   Reports how fast the Monte Carlo player searches, for tuning its time budget and thread count on a given machine.
+ * It plays the default strategy and every search it makes is measured.
+ *
+ *   Usage: java bench.MonteCarloBenchmark [millis per move] [threads] [games]
+ */
+public final class MonteCarloBenchmark {
+    private MonteCarloBenchmark() {}
+
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 50;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        MonteCarloPlayer hard = new MonteCarloPlayer(millis, threads);
+        Strategy[] players = {hard, new ComputerPlayer()};
+        long searches = 0;
+        double playoutsPerSecond = 0;
+        long treeSize = 0;
+        int maxTreeSize = 0;
+        int wins = 0;
+        for (int game = 0; game < games; game++) {
+            GameState state = new GameState(new Deal(new GameRandom(game)), game % 2 == 0);
+            GameEngine engine = new GameEngine(state);
+            StateView view = new StateView(engine);
+            while (!state.isOver()) {
+                int turn = state.getTurn();
+                view.apply(players[turn].decide(view));
+                if (turn == 0 && hard.getPlayouts() != 0) {
+                    searches++;
+                    playoutsPerSecond += hard.getPlayoutsPerSecond();
+                    treeSize += hard.getTreeSize();
+                    maxTreeSize = Math.max(maxTreeSize, hard.getTreeSize());
+                }
+            }
+            if (state.getWinner() == 0) {
+                wins++;
+            }
+        }
+        System.out.printf("%,d searches of %d ms on %d threads%n", searches, millis, threads);
+        System.out.printf("playouts per second: %,.0f%n", playoutsPerSecond/searches);
+        System.out.printf("tree size: %,d average, %,d max%n", treeSize/searches, maxTreeSize);
+        System.out.printf("won %d of %d games against the default strategy%n", wins, games);
+    }
+}
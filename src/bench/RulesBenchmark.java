@@ -0,0 +1,30 @@
+package bench;
+
+import engine.Rules;
+
+import java.util.SplittableRandom;
+
+/*
+ *   Reports the cost of a make/unmake pair for every combination of rule variants, to check that house rules don't
+ * slow down the standard game.
+ *
+ *   Usage: java bench.RulesBenchmark [seconds per variant]
+ */
+public final class RulesBenchmark {
+    private RulesBenchmark() {}
+
+    public static void main(String[] args) {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+        SplittableRandom random = new SplittableRandom(1);
+
+        System.out.println("Warming up...");
+        for (int variants = 0; variants < 8; variants++) {
+            SearchBenchmark.run(random, 1, Rules.of(variants));
+        }
+        for (int variants = 0; variants < 8; variants++) {
+            Rules rules = Rules.of(variants);
+            double pairsPerSecond = SearchBenchmark.run(random, seconds, rules);
+            System.out.printf("%-26s %6.1f ns per make/unmake pair%n", rules, 1e9/pairsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import engine.GameState;
+import engine.Rules;
+import engine.SearchState;
+import manager.Deal;
+import manager.GameRandom;
+
+import java.util.SplittableRandom;
+
+/*
+ *   Measures how many makeMove/unmakeMove pairs SearchState can do per second on one core. From each position along
+ * a random game, every legal move is made and unmade, then one of them is played to move on to the next position.
+ *
+ *   Usage: java bench.SearchBenchmark [seconds per round] [rounds]
+ */
+public final class SearchBenchmark {
+    private SearchBenchmark() {}
+
+    private static long sink = 0;
+
+    public static void main(String[] args) {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        SplittableRandom random = new SplittableRandom(1);
+
+        System.out.println("Warming up...");
+        run(random, seconds, Rules.STANDARD);
+        for (int round = 1; round <= rounds; round++) {
+            double pairsPerSecond = run(random, seconds, Rules.STANDARD);
+            System.out.printf("round %d: %,.0f make/unmake pairs per second%n", round, pairsPerSecond);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    static double run(SplittableRandom random, long seconds, Rules rules) {
+        SearchState search = new SearchState(2, rules);
+        int[] moves = new int[SearchState.MAX_MOVES];
+        long pairs = 0;
+        long start = System.nanoTime();
+        long end = start + seconds*1_000_000_000L;
+        long now;
+        do {
+            search.load(new GameState(new Deal(new GameRandom(random.nextLong())), true), random);
+            while (!search.isOver() && search.deckRemaining() > 0) {
+                int n = search.generateMoves(moves);
+                for (int i = 0; i < n; i++) {
+                    search.makeMove(moves[i]);
+                    sink += search.getTopOfDeck();
+                    search.unmakeMove();
+                }
+                pairs += n;
+                search.makeMove(moves[random.nextInt(n)]);
+            }
+            now = System.nanoTime();
+        } while (now < end);
+        return pairs * 1e9 / (now - start);
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import engine.GameEngine;
+import engine.GameState;
+import engine.StateView;
+import engine.Strategies;
+import engine.Strategy;
+import manager.Deal;
+import manager.GameRandom;
+
+import java.util.Arrays;
+
+/*
+ *   Reports how long each strategy takes to make a decision. Every strategy plays both seats of the same games, and
+ * each call to decide is timed separately so that the slow decisions show up in the percentiles instead of being
+ * averaged away.
+ *
+ *   Usage: java bench.StrategyBenchmark [decisions per strategy] [strategy...]
+ */
+public final class StrategyBenchmark {
+    private StrategyBenchmark() {}
+
+    private static long sink = 0;
+
+    public static void main(String[] args) {
+        int decisions = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] names = args.length > 1
+            ? Arrays.copyOfRange(args, 1, args.length)
+            : Strategies.getNames().toArray(new String[0]);
+
+        for (String name : names) {
+            System.out.println("Warming up "+name+"...");
+            measure(name, decisions/10);
+            long[] times = measure(name, decisions);
+            Arrays.sort(times);
+            System.out.printf("%-12s p50 %,8d ns   p99 %,10d ns   max %,10d ns%n",
+                name, percentile(times, 0.5), percentile(times, 0.99), times[times.length-1]);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    static long[] measure(String name, int decisions) {
+        Strategy[] players = {Strategies.create(name), Strategies.create(name)};
+        long[] times = new long[decisions];
+        int n = 0;
+        long seed = 0;
+        while (n < decisions) {
+            GameState state = new GameState(new Deal(new GameRandom(seed++)), true);
+            GameEngine engine = new GameEngine(state);
+            StateView view = new StateView(engine);
+            while (!state.isOver() && n < decisions) {
+                long start = System.nanoTime();
+                int move = players[state.getTurn()].decide(view);
+                times[n++] = System.nanoTime() - start;
+                sink += move;
+                view.apply(move);
+            }
+        }
+        return times;
+    }
+
+    static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length-1, (int) (p*sorted.length))];
+    }
+}
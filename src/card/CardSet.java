@@ -0,0 +1,161 @@
+package card;
+
+/*
+ *   A multiset of cards keyed by card ID. Since there are fewer than 64 card IDs, the count of every card is stored
+ * as bit planes: bit i of planes[k] is bit k of the count of card i. This makes finding the playable cards in a
+ * hand a single mask operation instead of a loop over every card.
+ */
+public final class CardSet {
+    private static final int PLANES = 6;
+
+    public static final int MAX_COUNT = (1 << PLANES) - 1;
+
+    private static final long[] PLAYABLE_ON = new long[UnoCard.ID_COUNT];
+    private static final long[] COLOR_MASKS = new long[UnoCard.COLOR_MAX + 1];
+    private static final long WILD_MASK;
+    private static final long NUMERIC_MASK;
+
+    private final long[] planes = new long[PLANES];
+    private long mask = 0;
+    private int size = 0;
+
+    public void add(int id) {
+        if (count(id) == MAX_COUNT) {
+            throw new IllegalStateException("error: too many copies of card "+UnoCard.fromId(id));
+        }
+        long bit = 1L << id;
+        for (int k = 0; k < PLANES; k++) {
+            long plane = planes[k];
+            planes[k] = plane ^ bit;
+            if ((plane & bit) == 0) {
+                break;
+            }
+        }
+        mask |= bit;
+        size++;
+    }
+
+    public void remove(int id) {
+        long bit = 1L << id;
+        if ((mask & bit) == 0) {
+            throw new IllegalStateException("error: card "+UnoCard.fromId(id)+" is not in the set");
+        }
+        long remaining = 0;
+        for (int k = 0; k < PLANES; k++) {
+            long plane = planes[k];
+            planes[k] = plane ^ bit;
+            if ((plane & bit) != 0) {
+                break;
+            }
+        }
+        for (int k = 0; k < PLANES; k++) {
+            remaining |= planes[k];
+        }
+        if ((remaining & bit) == 0) {
+            mask &= ~bit;
+        }
+        size--;
+    }
+
+    public void clear() {
+        for (int k = 0; k < PLANES; k++) {
+            planes[k] = 0;
+        }
+        mask = 0;
+        size = 0;
+    }
+
+    public void copyFrom(CardSet other) {
+        System.arraycopy(other.planes, 0, planes, 0, PLANES);
+        mask = other.mask;
+        size = other.size;
+    }
+
+    public int count(int id) {
+        int count = 0;
+        for (int k = 0; k < PLANES; k++) {
+            count |= (int) (planes[k] >>> id & 1) << k;
+        }
+        return count;
+    }
+
+    // Counts how many cards in the set are also in the given mask
+    public int countIn(long filter) {
+        int count = 0;
+        for (int k = 0; k < PLANES; k++) {
+            count += Long.bitCount(planes[k] & filter) << k;
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long mask() {
+        return mask;
+    }
+
+    public long playable(UnoCard topOfDeck) {
+        return mask & PLAYABLE_ON[topOfDeck.getId()];
+    }
+
+    public static long playableOn(UnoCard topOfDeck) {
+        return PLAYABLE_ON[topOfDeck.getId()];
+    }
+
+    public static long playableOn(int topOfDeck) {
+        return PLAYABLE_ON[topOfDeck];
+    }
+
+    public static boolean canPlayOn(UnoCard card, UnoCard topOfDeck) {
+        return contains(PLAYABLE_ON[topOfDeck.getId()], card.getId());
+    }
+
+    public static boolean contains(long mask, int id) {
+        return (mask >>> id & 1) != 0;
+    }
+
+    // Normal cards of the given color (wild cards are never included, even if a color was chosen for them)
+    public static long colorMask(int color) {
+        return COLOR_MASKS[color];
+    }
+
+    public static long wildMask() {
+        return WILD_MASK;
+    }
+
+    public static long numericMask() {
+        return NUMERIC_MASK;
+    }
+
+    static {
+        long wildMask = 0;
+        long numericMask = 0;
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            UnoCard card = UnoCard.fromId(id);
+            if (card.isNumeric()) {
+                numericMask |= 1L << id;
+            }
+            if (card instanceof WildCard) {
+                wildMask |= 1L << id;
+            } else {
+                COLOR_MASKS[card.getColorCode()] |= 1L << id;
+            }
+        }
+        WILD_MASK = wildMask;
+        NUMERIC_MASK = numericMask;
+        for (int top = 0; top < UnoCard.ID_COUNT; top++) {
+            // Uncolored wild cards can never be the top of the deck
+            if (top == UnoCard.wildId(false, UnoCard.NO_COLOR) || top == UnoCard.wildId(true, UnoCard.NO_COLOR)) {
+                continue;
+            }
+            UnoCard topOfDeck = UnoCard.fromId(top);
+            for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+                if (UnoCard.fromId(id).canPlayOn(topOfDeck)) {
+                    PLAYABLE_ON[top] |= 1L << id;
+                }
+            }
+        }
+    }
+}
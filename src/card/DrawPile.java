@@ -0,0 +1,123 @@
+package card;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/*
+ *   The draw pile is stored as a count of each card instead of a shuffled list. Drawing picks a card with probability
+ * proportional to how many copies are left, which gives exactly the same distribution as drawing from the top of a
+ * uniformly shuffled deck, but the pile never needs to be shuffled and refilling it doesn't allocate anything.
+ */
+public final class DrawPile {
+    private static final int[] UNCOLORED = new int[UnoCard.ID_COUNT];
+    private static final int[] DECK_COUNTS = new int[UnoCard.ID_COUNT];
+    private static final int DECK_SIZE;
+
+    private final int[] counts = new int[UnoCard.ID_COUNT];
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int count(int id) {
+        return counts[id];
+    }
+
+    public void clear() {
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            counts[id] = 0;
+        }
+        size = 0;
+    }
+
+    public void copyFrom(DrawPile other) {
+        System.arraycopy(other.counts, 0, counts, 0, UnoCard.ID_COUNT);
+        size = other.size;
+    }
+
+    public void addNewDeck() {
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            counts[id] += DECK_COUNTS[id];
+        }
+        size += DECK_SIZE;
+    }
+
+    // Wild cards are always returned to the pile without a color
+    public void add(int id) {
+        counts[UNCOLORED[id]]++;
+        size++;
+    }
+
+    public void addAll(List<UnoCard> cards) {
+        for (int i = 0, length = cards.size(); i < length; i++) {
+            add(cards.get(i).getId());
+        }
+    }
+
+    public void remove(int id) {
+        if (counts[id] == 0) {
+            throw new IllegalStateException("error: card "+UnoCard.fromId(id)+" is not in the draw pile");
+        }
+        counts[id]--;
+        size--;
+    }
+
+    public UnoCard draw(SplittableRandom random) {
+        return drawMatching(-1L, size, random);
+    }
+
+    // Equivalent to taking the first card in the shuffled deck that is in the mask
+    public UnoCard drawMatching(long mask, SplittableRandom random) {
+        int matching = 0;
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            if (CardSet.contains(mask, id)) {
+                matching += counts[id];
+            }
+        }
+        return drawMatching(mask, matching, random);
+    }
+
+    private UnoCard drawMatching(long mask, int matching, SplittableRandom random) {
+        if (matching == 0) {
+            throw new IllegalStateException("error: no matching cards left to draw");
+        }
+        int index = random.nextInt(matching);
+        for (int id = 0; ; id++) {
+            if (CardSet.contains(mask, id)) {
+                index -= counts[id];
+                if (index < 0) {
+                    counts[id]--;
+                    size--;
+                    return UnoCard.fromId(id);
+                }
+            }
+        }
+    }
+
+    public int[] toIds() {
+        int[] ids = new int[size];
+        int i = 0;
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            for (int n = counts[id]; n > 0; n--) {
+                ids[i++] = id;
+            }
+        }
+        return ids;
+    }
+
+    static {
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            UNCOLORED[id] = UnoCard.fromId(id).withColor(UnoCard.NO_COLOR).getId();
+        }
+        List<UnoCard> deck = UnoCard.newDeck();
+        for (UnoCard card : deck) {
+            DECK_COUNTS[card.getId()]++;
+        }
+        DECK_SIZE = deck.size();
+    }
+}
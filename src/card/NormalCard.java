@@ -3,12 +3,14 @@ package card;
 import java.awt.*;
 
 public final class NormalCard extends UnoCard {
-    private int color;
-    private int number;
+    private final int color;
+    private final int number;
+    private final String encoded;
 
     NormalCard(int color, int number) {
         this.color = color;
         this.number = number;
+        this.encoded = computeEncoding();
     }
 
     @Override
@@ -43,6 +45,10 @@ public final class NormalCard extends UnoCard {
 
     @Override
     public String encode() {
+        return encoded;
+    }
+
+    private String computeEncoding() {
         char n = UnoCard.encodeColor(color);
         switch (number) {
         case SKIP:
@@ -65,6 +71,11 @@ public final class NormalCard extends UnoCard {
         return false;
     }
 
+    @Override
+    public UnoCard withColor(int color) {
+        return this;
+    }
+
     @Override
     public boolean canPlay(int color, int number) {
         return this.color == color || this.number == number;
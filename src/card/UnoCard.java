@@ -1,10 +1,8 @@
 package card;
 
-import display.UnoPanel;
-
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 
 public abstract class UnoCard implements Comparable<UnoCard> {
     private static final int RED = 0;
@@ -14,6 +12,7 @@ public abstract class UnoCard implements Comparable<UnoCard> {
 
     public static final int COLOR_MIN = RED;
     public static final int COLOR_MAX = BLUE;
+    public static final int NO_COLOR = -1;
 
     public static final Color DEFAULT_TEXT_COLOR = new Color(255, 128, 128);
 
@@ -26,6 +25,12 @@ public abstract class UnoCard implements Comparable<UnoCard> {
 
     static final int ORDER_CODE_COUNT = 10 + 4*13;
 
+    // Every distinct card (including uncolored wild cards) is identified by its order code
+    public static final int ID_COUNT = ORDER_CODE_COUNT;
+
+    private static final UnoCard[] CARDS = new UnoCard[ID_COUNT];
+    private static final byte[] DECODE_TABLE = new byte[128*128];
+
     public static final int MAX_POWER_DIFF = 20;
 
     public abstract int getColorCode();
@@ -35,6 +40,7 @@ public abstract class UnoCard implements Comparable<UnoCard> {
 
     public abstract String encode();
     public abstract boolean canBecome(UnoCard card);
+    public abstract UnoCard withColor(int color);
 
     public abstract boolean canPlay(int color, int number);
     public abstract boolean isNumeric();
@@ -79,20 +85,40 @@ public abstract class UnoCard implements Comparable<UnoCard> {
         return canPlay(topOfDeck.getColorCode(), topOfDeck.getNumberCode());
     }
 
+    public final boolean isReverse() {
+        return getNumberCode() == REVERSE;
+    }
+
+    public final int getId() {
+        return getOrderCode();
+    }
+
+    public static UnoCard fromId(int id) {
+        return CARDS[id];
+    }
+
+    public static int wildId(boolean isDrawFour, int color) {
+        return (isDrawFour ? 6 : 1)+color;
+    }
+
+    public static int normalId(int color, int number) {
+        return 10+color*13+number;
+    }
+
+    // Returns every card in a single deck, in order
     public static ArrayList<UnoCard> newDeck() {
         ArrayList<UnoCard> deck = new ArrayList<>();
         for (int color = UnoCard.COLOR_MIN; color <= UnoCard.COLOR_MAX; color++) {
-            deck.add(new NormalCard(color, 0));
+            deck.add(CARDS[normalId(color, 0)]);
             for (int number = 1; number <= UnoCard.NUMBER_MAX; number++) {
-                deck.add(new NormalCard(color, number));
-                deck.add(new NormalCard(color, number));
+                deck.add(CARDS[normalId(color, number)]);
+                deck.add(CARDS[normalId(color, number)]);
             }
         }
         for (int i = 0; i < 4; i++) {
-            deck.add(new WildCard(false));
-            deck.add(new WildCard(true));
+            deck.add(CARDS[wildId(false, NO_COLOR)]);
+            deck.add(CARDS[wildId(true, NO_COLOR)]);
         }
-        Collections.shuffle(deck, UnoPanel.RANDOM);
         return deck;
     }
 
@@ -111,7 +137,7 @@ public abstract class UnoCard implements Comparable<UnoCard> {
         }
     }
 
-    static String getColorText(int color) {
+    public static String getColorText(int color) {
         switch (color) {
         case RED:
             return "Red";
@@ -140,26 +166,26 @@ public abstract class UnoCard implements Comparable<UnoCard> {
     }
 
     public static UnoCard decode(String encoded) {
-        char[] encodedChars = encoded.toCharArray();
-        if (encodedChars.length != 2) {
+        return CARDS[decodeId(encoded)];
+    }
+
+    public static int decodeId(String encoded) {
+        if (encoded.length() != 2) {
             throw new IllegalArgumentException("encoded cards must be 2 characters long (found: "+encoded+")");
         }
-        char kind = encodedChars[0];
-        int color = decodeColor(encodedChars[1]);
-        switch (kind) {
-        case 'D':
-            return new WildCard(color, true);
-        case 'W':
-            return new WildCard(color, false);
-        case 's':
-            return new NormalCard(color, SKIP);
-        case 'r':
-            return new NormalCard(color, REVERSE);
-        case 'd':
-            return new NormalCard(color, DRAW_2);
-        default:
-            return new NormalCard(color, kind-'0');
+        return decodeId(encoded.charAt(0), encoded.charAt(1));
+    }
+
+    public static int decodeId(char kind, char color) {
+        int id = kind < 128 && color < 128 ? DECODE_TABLE[kind*128+color] : -1;
+        if (id == -1) {
+            throw new IllegalArgumentException("invalid encoded card (found: "+kind+color+")");
         }
+        return id;
+    }
+
+    public static String encodeId(int id) {
+        return CARDS[id].encode();
     }
 
     static char encodeColor(int color) {
@@ -177,18 +203,20 @@ public abstract class UnoCard implements Comparable<UnoCard> {
         }
     }
 
-    private static int decodeColor(char ch) {
-        switch (ch) {
-        case 'r':
-            return RED;
-        case 'y':
-            return YELLOW;
-        case 'g':
-            return GREEN;
-        case 'b':
-            return BLUE;
-        default:
-            return -1;
+    static {
+        for (int color = NO_COLOR; color <= COLOR_MAX; color++) {
+            CARDS[wildId(false, color)] = new WildCard(color, false);
+            CARDS[wildId(true, color)] = new WildCard(color, true);
+        }
+        for (int color = COLOR_MIN; color <= COLOR_MAX; color++) {
+            for (int number = 0; number <= NUMBER_MAX; number++) {
+                CARDS[normalId(color, number)] = new NormalCard(color, number);
+            }
+        }
+        Arrays.fill(DECODE_TABLE, (byte) -1);
+        for (int id = 0; id < ID_COUNT; id++) {
+            String encoded = CARDS[id].encode();
+            DECODE_TABLE[encoded.charAt(0)*128+encoded.charAt(1)] = (byte) id;
         }
     }
 
@@ -3,25 +3,19 @@ package card;
 import java.awt.*;
 
 public final class WildCard extends UnoCard {
-    private boolean isDrawFour;
-    private int color;
-
-    WildCard(boolean isDrawFour) {
-        this(-1, isDrawFour);
-    }
+    private final boolean isDrawFour;
+    private final int color;
+    private final String encoded;
 
     WildCard(int color, boolean isDrawFour) {
         this.isDrawFour = isDrawFour;
         this.color = color;
-    }
-
-    public void setColor(int color) {
-        this.color = color;
+        this.encoded = computeEncoding();
     }
 
     @Override
     public int getColorCode() {
-        if (color == -1) {
+        if (color == UnoCard.NO_COLOR) {
             throw new IllegalStateException("error: wild card color not yet set!");
         }
         return color;
@@ -34,11 +28,7 @@ public final class WildCard extends UnoCard {
 
     @Override
     public int getOrderCode() {
-        if (isDrawFour) {
-            return 6+color;
-        } else {
-            return 1+color;
-        }
+        return UnoCard.wildId(isDrawFour, color);
     }
 
     @Override
@@ -52,6 +42,10 @@ public final class WildCard extends UnoCard {
 
     @Override
     public String encode() {
+        return encoded;
+    }
+
+    private String computeEncoding() {
         char n = UnoCard.encodeColor(color);
         if (isDrawFour) {
             return "D"+n;
@@ -64,11 +58,16 @@ public final class WildCard extends UnoCard {
     public boolean canBecome(UnoCard card) {
         if (card instanceof WildCard) {
             WildCard wildCard = (WildCard) card;
-            return wildCard.isDrawFour == isDrawFour && (color == -1 || wildCard.color == color);
+            return wildCard.isDrawFour == isDrawFour && (color == UnoCard.NO_COLOR || wildCard.color == color);
         }
         return false;
     }
 
+    @Override
+    public UnoCard withColor(int color) {
+        return UnoCard.fromId(UnoCard.wildId(isDrawFour, color));
+    }
+
     @Override
     public boolean canPlay(int color, int number) {
         return true;
@@ -95,7 +94,7 @@ public final class WildCard extends UnoCard {
 
     @Override
     public Color getColor() {
-        if (color == -1) {
+        if (color == UnoCard.NO_COLOR) {
             return Color.BLACK;
         } else {
             return UnoCard.getColor(color);
@@ -1,6 +1,8 @@
 package display;
 
+import manager.GameRecord;
 import manager.local.ComputerManager;
+import manager.local.ReplayManager;
 import manager.web.ClientManager;
 import manager.web.Message;
 import manager.web.ServerManager;
@@ -50,12 +52,12 @@ public final class Uno extends JFrame {
         UNO_DIRECTORY.mkdir();
         int mode = JOptionPane.showOptionDialog(
                 null,
-                "Do you want to play against a computer or online?",
+                "Do you want to play against a computer or online, or watch your last game again?",
                 "Select Mode",
                 JOptionPane.DEFAULT_OPTION,
                 JOptionPane.PLAIN_MESSAGE,
                 null,
-                new String[] {"Computer", "Online"},
+                new String[] {"Computer", "Online", "Replay"},
                 null);
         switch (mode) {
         case 0:
@@ -64,6 +66,18 @@ public final class Uno extends JFrame {
         case 1:
             prepareServer();
             break;
+        case 2:
+            GameRecord record = ReplayManager.latestRecord();
+            if (record == null) {
+                JOptionPane.showMessageDialog(
+                        null,
+                        "There is no finished game to watch yet.",
+                        "No Replay",
+                        JOptionPane.PLAIN_MESSAGE);
+                return;
+            }
+            UnoPanel.setOpponent(new ReplayManager(record));
+            break;
         default:
             return;
         }
@@ -244,6 +258,12 @@ public final class Uno extends JFrame {
                         formatVersion(version)));
     }
 
+    public static void rulesIncompatible() {
+        asyncErrorDialog(
+                "Online games are always played by the standard rules, so house rules set with uno.rules can't be used.",
+                "House Rules Not Supported");
+    }
+
     public static void unknownMessage(String kind) {
         asyncErrorDialog(
                 "An unknown message type was received from your opponent.",
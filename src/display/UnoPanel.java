@@ -2,8 +2,14 @@ package display;
 
 import card.CardGraphics;
 import card.CardObject;
+import card.CardSet;
+import card.DrawPile;
 import card.UnoCard;
-import card.WildCard;
+import engine.GameEngine;
+import engine.GameListener;
+import engine.GameState;
+import engine.Hand;
+import engine.Rules;
 import manager.DeckManager;
 import manager.HandManager;
 import manager.OpponentManager;
@@ -36,12 +42,12 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
     private static final int END_TURN_WIDTH = CardGraphics.WIDTH;
     private static final int END_TURN_HEIGHT = 40;
 
-    public static final Random RANDOM = new Random();
-
     public static int width;
     public static int height;
 
-    private static List<UnoCard> discard = new ArrayList<>();
+    // The game as the rules see it, which the hands and the top of the deck catch up with as they are animated
+    private static GameState state = null;
+    private static GameEngine engine = null;
 
     private static UnoMenu menu = null;
     private static Chat chat = null;
@@ -62,7 +68,6 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
     private static float circleOpacityRoot = 0.0f;
     private static Color circleColor;
 
-    private static boolean hasDrawn;
     private static long endRecommendedTime = 0;
     private static int peekStage = 0;
 
@@ -185,11 +190,11 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
     }
 
     private void reset() {
-        discard.clear();
         eventQueue.clear();
         topOfDeck = null;
+        state = null;
+        engine = null;
         gameOverTimer = 0;
-        hasDrawn = false;
         player.reset();
         opponent.reset();
         shouldRepaintAll();
@@ -217,12 +222,30 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         opponent.reset();
     }
 
-    private static HandManager current() {
-        return player.isTurn ? player : opponent;
+    private static HandManager hand(int seat) {
+        return seat == GameState.PLAYER ? player : opponent;
+    }
+
+    // The card as it is known here, which is nothing for a card the opponent is only pretending to have
+    private static UnoCard seen(int seat, int id) {
+        return seat == GameState.OPPONENT && !opponent.knowsHand() ? null : UnoCard.fromId(id);
+    }
+
+    private static UnoCard[] seenHand(int seat) {
+        Hand hand = state.getHand(seat);
+        UnoCard[] cards = new UnoCard[hand.size()];
+        for (int c = 0; c < cards.length; c++) {
+            cards[c] = seen(seat, hand.get(c));
+        }
+        return cards;
+    }
+
+    public static int getDeckSize() {
+        return state == null ? 0 : state.getDeck().size();
     }
 
-    private static HandManager other() {
-        return player.isTurn ? opponent : player;
+    private static int discardSize() {
+        return state == null ? 0 : state.getDiscardSize();
     }
 
     private static void pushEvent(Event event) {
@@ -266,7 +289,53 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
     }
 
     public static boolean canDraw() {
-        return !hasDrawn;
+        return !state.hasDrawn();
+    }
+
+    public static boolean canPlay(int c) {
+        return engine.canPlay(c);
+    }
+
+    // Every card the seat whose turn it is may play, whether or not it has one
+    public static long getLegalCards() {
+        return engine == null ? 0 : engine.legalCards();
+    }
+
+    // The cards the seat could play out of turn right now under the jump-in rules
+    public static long getJumpIns(int seat) {
+        return engine == null ? 0 : engine.jumpIns(seat);
+    }
+
+    public static Rules getRules() {
+        return state.getRules();
+    }
+
+    public static int getPendingDraws() {
+        return state.getPendingDraws();
+    }
+
+    public static CardSet getPlayerCards() {
+        return player.handSet;
+    }
+
+    public static int getSeats() {
+        return state.seats();
+    }
+
+    public static int getDirection() {
+        return state.getDirection();
+    }
+
+    public static int seatAfter(int seat) {
+        return engine.seatAfter(seat);
+    }
+
+    public static int getOpponentHandSize() {
+        return opponent.count();
+    }
+
+    public static boolean getUnseenCards(DrawPile unseen) {
+        return opponent.unseenCards(unseen);
     }
 
     public static UnoCard getTopOfDeck() {
@@ -281,27 +350,6 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         }
     }
 
-    public static List<UnoCard> takeDiscardPile() {
-        List<UnoCard> oldDiscard = discard;
-        discard = new ArrayList<>();
-        return oldDiscard;
-    }
-
-    public static List<UnoCard> newDeckFromDiscard() {
-        if (discard.isEmpty()) {
-            return UnoCard.newDeck();
-        } else {
-            List<UnoCard> deck = takeDiscardPile();
-            for (UnoCard card : deck) {
-                if (card instanceof WildCard) {
-                    ((WildCard) card).setColor(-1);
-                }
-            }
-            Collections.shuffle(deck, RANDOM);
-            return deck;
-        }
-    }
-
     public static float getHighlightDist(long time) {
         if (time == 0) {
             return 0.0f;
@@ -328,10 +376,10 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         drawPileLocation = new Point((width-2*CardGraphics.WIDTH)/2-5, dy);
         topOfDeckLocation = new Point(width/2+5, dy);
         if (!willDisplay) {
-            int s = Math.min(4, opponent.cardsInDeck());
+            int s = Math.min(4, getDeckSize());
             drawPileLocation.x += s;
             drawPileLocation.y -= s;
-            s = Math.min(4, discard.size());
+            s = Math.min(4, discardSize());
             topOfDeckLocation.x += s;
             topOfDeckLocation.y -= s;
         }
@@ -346,21 +394,21 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         setHints(g);
         updateWHD(true);
 
-        for (int i = Math.max(0, discard.size()-4); i < discard.size(); i++) {
-            CardGraphics.paint(g, discard.get(i), false, 0, topOfDeckLocation.x, topOfDeckLocation.y, 1.0);
+        for (int i = Math.max(0, discardSize()-4); i < discardSize(); i++) {
+            CardGraphics.paint(g, UnoCard.fromId(state.getDiscard(i)), false, 0, topOfDeckLocation.x, topOfDeckLocation.y, 1.0);
             topOfDeckLocation.x += 1;
             topOfDeckLocation.y -= 1;
         }
 
         int drawPileStartX = drawPileLocation.x;
-        for (int i = 0, shownCards = Math.min(4, opponent.cardsInDeck()); i < shownCards; i++) {
+        for (int i = 0, shownCards = Math.min(4, getDeckSize()); i < shownCards; i++) {
             CardGraphics.paintBlank(g, drawPileLocation.x, drawPileLocation.y);
             drawPileLocation.x += 1;
             drawPileLocation.y -= 1;
         }
         CardGraphics.paintBlank(g, drawPileLocation.x, drawPileLocation.y);
 
-        if (player.isTurn && hasDrawn && !hasEventInQueue()) {
+        if (player.isTurn && state.hasDrawn() && !hasEventInQueue()) {
             Color color = topOfDeck.getCard().getColor();
             endTurnButton = new Point(topOfDeckLocation.x + CardGraphics.WIDTH + HandManager.MARGIN, (height - END_TURN_HEIGHT)/2);
             if (endRecommendedTime != 0) {
@@ -470,23 +518,28 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         return !player.shouldPlayDrawnCard();
     }
 
-    public static void saveState(List<String> saveData) {
-        saveData.add(topOfDeck.getCard().encode());
-        saveData.add(DeckManager.saveCards(discard));
-        saveData.add(DeckManager.saveCardObjects(player.hand));
-        saveData.add(DeckManager.saveCardObjects(opponent.hand));
-        saveData.add(player.isTurn ? "1" : "0");
-        saveData.add(hasDrawn ? "1" : "0");
+    // Shows a position without starting anyone's turn, for watching a recorded game
+    public static void showState(GameState shown) {
+        state = shown;
+        engine = null;
+        player.reset();
+        opponent.hand.clear();
+        opponent.handSet.clear();
+        topOfDeck = new CardObject();
+        topOfDeck.setCard(UnoCard.fromId(state.getTopOfDeck()));
+        placeHand(GameState.PLAYER, true);
+        placeHand(GameState.OPPONENT, true);
+        shouldRepaintAll();
     }
 
-    public static void loadState(List<String> loadData) {
-        UnoCard topOfDeck = UnoCard.decode(loadData.get(2));
-        List<UnoCard> discard = new ArrayList<>(Arrays.asList(DeckManager.loadCards(loadData.get(3))));
-        UnoCard[] playerHand = DeckManager.loadCards(loadData.get(4));
-        UnoCard[] opponentHand = DeckManager.loadCards(loadData.get(5));
-        boolean playerWillStart = loadData.get(6).equals("1");
-        boolean hasDrawn = loadData.get(7).equals("1");
-        restore(topOfDeck, discard, playerHand, opponentHand, playerWillStart, hasDrawn);
+    // Puts the cards of a hand in place without animating them
+    private static void placeHand(int seat, boolean flipped) {
+        for (UnoCard card : seenHand(seat)) {
+            CardObject cardObject = new CardObject();
+            cardObject.setCard(card);
+            cardObject.setFlipped(flipped);
+            hand(seat).addCard(cardObject, false);
+        }
     }
 
     public static void delay(long time) {
@@ -510,72 +563,129 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         });
     }
 
+    // Plays the game from now on with an engine whose moves are animated here
+    private static void useState(GameState newState) {
+        state = newState;
+        engine = new GameEngine(state);
+        engine.setListener(ANIMATOR);
+        engine.setSource(opponent.cardSource());
+    }
+
+    // Everything happens to the state as soon as the engine is asked, but it is only shown as the events get to it
+    private static final GameListener ANIMATOR = new GameListener() {
+        @Override
+        public void cardDrawn(int seat, int id) {
+            UnoCard card = seen(seat, id);
+            opponent.cardDrawn(card, seat == GameState.PLAYER);
+            drawCardTo(card, hand(seat));
+        }
+
+        @Override
+        public void cardDealt(int seat, int id) {
+            UnoCard card = seen(seat, id);
+            opponent.cardDealt(card, seat == GameState.PLAYER);
+            drawCardTo(card, hand(seat));
+        }
+
+        @Override
+        public void cardPlayed(int seat, int c, int id) {
+            UnoCard oldTopOfDeck = topOfDeck.getCard();
+            HandManager target = hand(seat);
+            topOfDeck = target.removeCard(c, true);
+            UnoCard card = UnoCard.fromId(id);
+            topOfDeck.setCard(card);
+            opponent.cardPlayed(card, seat == GameState.PLAYER);
+            if (target.count() == 0) {
+                startCircle();
+                changeChatColor();
+                endGame();
+            } else if (card.getColorCode() != oldTopOfDeck.getColorCode()) {
+                startCircle();
+                changeChatColor();
+            }
+        }
+
+        @Override
+        public void handsSwapped(int seat, int other) {
+            opponent.handsSwapped(state.getHand(GameState.PLAYER).set(), state.getHand(GameState.OPPONENT).set());
+            pushEvent("swapHands", () -> player.swapWith(opponent));
+        }
+
+        @Override
+        public void handsRotated(int direction) {
+            // With only two seats, passing every hand on is the same as swapping them
+            handsSwapped(GameState.PLAYER, GameState.OPPONENT);
+        }
+
+        @Override
+        public void turnStarted(int seat) {
+            opponent.turnStarted(seat == GameState.PLAYER);
+            pushEvent("startTurn", () -> startTurn(seat));
+        }
+
+        @Override
+        public void deckRefilled(int[] ids, int length) {
+            opponent.deckRefilled(ids, length);
+        }
+    };
+
     public static void drawCard() {
-        final UnoCard card;
         if (player.isTurn) {
+            player.cancelHint();
             opponent.playerDrawCard();
-            card = opponent.drawVisibleCard();
-        } else {
-            card = opponent.drawHiddenCard();
         }
-        pushEvent(new Event() {
-            private CardObject cardObject;
+        // Drawing the cards stacked on the seat ends its turn, so there is no drawn card to play
+        boolean turnCard = state.getPendingDraws() == 0;
+        engine.draw();
+        pushEvent("drawnCard", () -> {
+            endRecommendedTime = turnCard && player.isTurn && playerShouldEndTurn() ? System.currentTimeMillis() : 0;
+            opponent.canSave();
+        });
+    }
 
+    public static void playCard(int c) {
+        playCard(c, UnoCard.NO_COLOR);
+    }
+
+    // The color is only applied to wild cards, which are kept uncolored while they are in a hand
+    public static void playCard(int c, int color) {
+        if (player.isTurn) {
+            player.cancelHint();
+            opponent.playerPlayCard(c, player.hand.get(c).getCard().withColor(color));
+        }
+        pushEvent(waitForCircle());
+        pushEvent(new Event() {
             @Override
             public void start() {
-                hasDrawn = true;
-                cardObject = drawCardDirectlyTo(card, current());
-                endRecommendedTime = player.isTurn && playerShouldEndTurn() ? System.currentTimeMillis() : 0;
-                opponent.canSave();
-                shouldRepaintAll();
+                engine.play(c, color);
             }
 
             @Override
             public boolean isDone() {
-                return cardObject.doneAnimating();
+                return topOfDeck.doneAnimating();
             }
 
             @Override
             public String toString() {
-                return "drawCard";
+                return "playCard("+c+")";
             }
         });
     }
 
-    public static void playCard(int c) {
-        if (player.isTurn) {
-            opponent.playerPlayCard(c, player.hand.get(c).getCard());
-        }
+    // Plays the seat's card at c out of turn under the jump-in rules, as long as it still can when the event gets to it
+    public static void jumpIn(int seat, int c) {
         pushEvent(waitForCircle());
         pushEvent(new Event() {
             @Override
             public void start() {
-                UnoCard oldTopOfDeck = topOfDeck.getCard();
-                discard.add(oldTopOfDeck);
-                HandManager target = current();
-                topOfDeck = target.removeCard(c, true);
-                UnoCard card = topOfDeck.getCard();
-                if (target.count() == 0) {
-                    startCircle();
-                    changeChatColor();
-                    endGame();
+                if (!engine.canJumpIn(seat, c)) {
                     return;
-                } else if (card.getColorCode() != oldTopOfDeck.getColorCode()) {
-                    startCircle();
-                    changeChatColor();
                 }
-                if (card.isSkip()) {
-                    for (int i = 0, cardDraws = card.cardDraws(); i < cardDraws; i++) {
-                        if (player.isTurn) {
-                            drawCardTo(opponent.drawHiddenCard(), opponent);
-                        } else {
-                            drawCardTo(opponent.drawVisibleCard(), player);
-                        }
-                    }
-                    restartTurn();
-                } else {
-                    finishTurn();
+                if (seat == GameState.PLAYER) {
+                    player.cancelHint();
+                    opponent.playerPlayCard(c, player.hand.get(c).getCard());
                 }
+                engine.jumpIn(seat, c);
             }
 
             @Override
@@ -585,12 +695,23 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
 
             @Override
             public String toString() {
-                return "playCard("+c+")";
+                return "jumpIn("+seat+", "+c+")";
             }
         });
     }
 
-    public static void newGame(UnoCard topOfDeck, UnoCard[] playerHand, UnoCard[] opponentHand) {
+    // The opponent's card at c, which isn't known here, turned out to be card just as it is being played
+    public static void revealOpponentCard(int c, UnoCard card) {
+        UnoCard uncolored = card.withColor(UnoCard.NO_COLOR);
+        engine.reveal(GameState.OPPONENT, c, uncolored.getId());
+        opponent.setCard(c, uncolored);
+    }
+
+    public static void newGame(GameState newState) {
+        useState(newState);
+        UnoCard topOfDeck = UnoCard.fromId(state.getTopOfDeck());
+        UnoCard[] playerHand = seenHand(GameState.PLAYER);
+        UnoCard[] opponentHand = seenHand(GameState.OPPONENT);
         opponent.newGame(topOfDeck, opponentHand);
         final boolean playerWillStart = opponent.playerCanStart();
         delay(250);
@@ -625,40 +746,50 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         pushEvent("startGame", () -> {
             startCircle();
             changeChatColor();
-            startGame(playerWillStart);
+            engine.start(playerWillStart ? GameState.PLAYER : GameState.OPPONENT);
         });
     }
 
-    public static void restore(UnoCard topOfDeck, List<UnoCard> discard, UnoCard[] playerHand, UnoCard[] opponentHand, boolean playerWillStart, boolean hasDrawn) {
-        opponent.restore(topOfDeck, opponentHand, playerHand.length, discard, playerWillStart, hasDrawn);
+    public static void restore(GameState newState) {
+        useState(newState);
+        boolean playerWillStart = state.getTurn() == GameState.PLAYER;
+        UnoCard topOfDeck = UnoCard.fromId(state.getTopOfDeck());
+        List<UnoCard> discard = new ArrayList<>(state.getDiscardSize());
+        for (int i = 0; i < state.getDiscardSize(); i++) {
+            discard.add(UnoCard.fromId(state.getDiscard(i)));
+        }
+        opponent.restore(topOfDeck, seenHand(GameState.OPPONENT), state.getHand(GameState.PLAYER).size(), discard,
+            playerWillStart, state.hasDrawn());
         UnoPanel.topOfDeck = new CardObject();
         UnoPanel.topOfDeck.setCard(topOfDeck);
-        UnoPanel.discard = discard;
-        for (UnoCard card : playerHand) {
-            CardObject cardObject = new CardObject();
-            cardObject.setCard(card);
-            cardObject.setFlipped(true);
-            player.addCard(cardObject, false);
-        }
-        for (UnoCard card : opponentHand) {
-            CardObject cardObject = new CardObject();
-            cardObject.setCard(card);
-            opponent.addCard(cardObject, false);
-        }
+        placeHand(GameState.PLAYER, true);
+        placeHand(GameState.OPPONENT, false);
         if (chat != null) {
             chat.setColor(topOfDeck.getTextColor());
         }
-        endRecommendedTime = playerWillStart && hasDrawn && playerShouldEndTurn() ? System.currentTimeMillis() : 0;
-        UnoPanel.hasDrawn = hasDrawn;
+        endRecommendedTime = playerWillStart && state.hasDrawn() && playerShouldEndTurn() ? System.currentTimeMillis() : 0;
         startGame(playerWillStart);
         shouldRepaintAll();
     }
 
     public static void finishTurnEarly() {
         if (player.isTurn) {
+            player.cancelHint();
             opponent.playerFinishTurnEarly();
         }
-        pushEvent("finishTurn", UnoPanel::finishTurn);
+        pushEvent("finishTurn", () -> engine.finishTurn());
+    }
+
+    // Peeking costs two cards, and the first of them is the turn's draw if it hasn't been used yet
+    private static void peekPenalty() {
+        int cards = 2;
+        if (engine.canDraw()) {
+            drawCard();
+            cards--;
+        }
+        for (; cards > 0; cards--) {
+            engine.deal(GameState.PLAYER);
+        }
     }
 
     private static void drawCardTo(UnoCard card, HandManager target) {
@@ -667,7 +798,10 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
 
             @Override
             public void start() {
-                cardObject = drawCardDirectlyTo(card, target);
+                cardObject = new CardObject();
+                cardObject.setCard(card);
+                cardObject.setPosition(drawPileLocation.x, drawPileLocation.y);
+                target.addCard(cardObject, true);
             }
 
             @Override
@@ -682,14 +816,6 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         });
     }
 
-    private static CardObject drawCardDirectlyTo(UnoCard card, HandManager target) {
-        CardObject cardObject = new CardObject();
-        cardObject.setCard(card);
-        cardObject.setPosition(drawPileLocation.x, drawPileLocation.y);
-        target.addCard(cardObject, true);
-        return cardObject;
-    }
-
     private static Event waitForCircle() {
         return new Event() {
             @Override
@@ -720,16 +846,6 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         }
     }
 
-    private static void restartTurn() {
-        pushEvent("restartTurn", () -> {
-            HandManager current = current();
-            current.endTurn();
-            hasDrawn = false;
-            current.startTurn(other().count());
-            opponent.canSave();
-        });
-    }
-
     private static void endGame() {
         pushEvent("endGame", () -> {
             gameOverTimer = System.currentTimeMillis()+10_000;
@@ -747,21 +863,21 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         shouldRepaintAll();
     }
 
-    private static void finishTurn() {
-        if (player.isTurn) {
-            if (peekStage != 0) {
-                peekStage = 0;
-                for (CardObject card : opponent.hand) {
-                    card.startAnimating();
-                }
+    // A turn started, which might be the same seat's again after it skipped the other
+    private static void startTurn(int seat) {
+        if (player.isTurn && seat != GameState.PLAYER && peekStage != 0) {
+            peekStage = 0;
+            for (CardObject card : opponent.hand) {
+                card.startAnimating();
             }
-            player.endTurn();
-            hasDrawn = false;
-            opponent.startTurn(player.count());
-        } else {
-            opponent.endTurn();
-            hasDrawn = false;
-            player.startTurn(opponent.count());
+        }
+        HandManager current = hand(seat);
+        HandManager other = hand(seat == GameState.PLAYER ? GameState.OPPONENT : GameState.PLAYER);
+        other.endTurn();
+        current.endTurn();
+        current.startTurn(other.count());
+        if (seat == GameState.PLAYER && engine.jumpIns(GameState.OPPONENT) != 0) {
+            opponent.jumpInPossible();
         }
         opponent.canSave();
         shouldRepaintAll();
@@ -781,8 +897,8 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
                         if (!menu.click(x, y)) {
                             menu = null;
                         }
-                    } else if (drawPileLocation != null && player.isTurn) {
-                        if (!player.click(x, y, drawPileLocation) && hasDrawn && endTurnButton != null
+                    } else if (drawPileLocation != null && (player.isTurn || getJumpIns(GameState.PLAYER) != 0)) {
+                        if (!player.click(x, y, drawPileLocation) && player.isTurn && state.hasDrawn() && endTurnButton != null
                                 && x >= endTurnButton.x && x <= endTurnButton.x+END_TURN_WIDTH
                                 && y >= endTurnButton.y && y <= endTurnButton.y+END_TURN_HEIGHT) {
                             finishTurnEarly();
@@ -807,9 +923,23 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
         char c = e.getKeyChar();
         if (!Character.isISOControl(c)) {
             if (chat == null) {
+                synchronized (this) {
+                    if (opponent.keyTyped(c)) {
+                        return;
+                    }
+                }
                 if (!player.isTurn || hasEventInQueue()) {
                     return;
                 }
+                if (c == 'h' || c == 'H') {
+                    synchronized (this) {
+                        pushEvent("requestHint", player::requestHint);
+                    }
+                    return;
+                }
+                if (!opponent.canPeek()) {
+                    return;
+                }
                 char required;
                 switch (peekStage) {
                     case 0:
@@ -834,8 +964,9 @@ public final class UnoPanel extends JPanel implements MouseListener, KeyListener
                         for (CardObject card : opponent.hand) {
                             card.startAnimating();
                         }
-                        drawCard();
-                        drawCard();
+                        synchronized (this) {
+                            pushEvent("peekPenalty", UnoPanel::peekPenalty);
+                        }
                     }
                 } else {
                     peekStage = 0;
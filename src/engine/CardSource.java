@@ -0,0 +1,13 @@
+package engine;
+
+/*
+ *   Where the cards drawn by a GameEngine come from. The engine refills the draw pile before asking, so there is always
+ * a card in it, and the source takes the card out of the pile itself. Games that deal their own cards draw at random,
+ * but a replay has to draw the recorded cards, and a network client the cards the server sends it.
+ */
+public interface CardSource {
+    CardSource RANDOM = (state, seat) -> state.deck.draw(state.drawRandom).getId();
+
+    // Takes the card that the seat draws out of the draw pile
+    int draw(GameState state, int seat);
+}
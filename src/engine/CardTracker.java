@@ -0,0 +1,307 @@
+package engine;
+
+import card.CardSet;
+import card.DrawPile;
+import card.UnoCard;
+
+/*
+ *   What one seat of a two-seat game can work out about the other seat's hand from everything it has seen. Cards that
+ * haven't been seen are either in the draw pile or in the other hand, so each card in that hand is guessed to be drawn
+ * from the unseen cards, except for one thing: a player who draws instead of playing probably had nothing that could
+ * be played, so the cards they held then are unlikely to be any that were playable at the time (their "voids").
+ *
+ *   Under the seven-o rules, the other seat can be given a hand this seat has seen, and those cards are simply known.
+ *
+ *   Humans sometimes draw on purpose, so how much the voids are trusted depends on how often they have turned out to be
+ * right, either when a card from a void is played or when the hand is revealed at the end of a game.
+ *
+ *   Everything is updated as events happen, so every per-card query is O(1).
+ */
+public final class CardTracker {
+    // Until voids have been checked a few times, assume that players mostly don't draw on purpose
+    private static final int PRIOR_CHECKS = 5;
+    private static final int PRIOR_MISSES = 1;
+    // Older groups are merged once there are this many, which only forgets some of what is known about them
+    private static final int MAX_GROUPS = 4;
+
+    private final DrawPile unseen = new DrawPile();
+
+    /*
+     *   The cards in the other hand, split by when they were given to it. Each group holds the cards that were in the
+     * hand for the same set of turns on which it drew instead of playing, so its voids are every card that was playable
+     * on any of them. A card given after one of those turns was never held then, so it doesn't share those voids. Groups
+     * are kept oldest first, and each one's voids include all the voids of the groups after it.
+     */
+    private final int[] groupCards = new int[MAX_GROUPS];
+    private final long[] groupVoids = new long[MAX_GROUPS];
+    private final int[] groupUnseen = new int[MAX_GROUPS];
+    private int groups = 0;
+
+    // Cards given to the other seat since it last drew instead of playing
+    private int freshCards = 0;
+    // Cards this seat saw go into the other hand
+    private final CardSet known = new CardSet();
+
+    private int voidChecks = 0;
+    private int voidMisses = 0;
+
+    // Starts a new game in which every card but the top of the deck is unseen
+    public void reset(int topOfDeck, int handSize) {
+        reset(topOfDeck, handSize, 1);
+    }
+
+    public void reset(int topOfDeck, int handSize, int decks) {
+        unseen.clear();
+        for (int i = 0; i < decks; i++) {
+            unseen.addNewDeck();
+        }
+        groups = 0;
+        freshCards = handSize;
+        known.clear();
+        see(topOfDeck);
+    }
+
+    public void copyFrom(CardTracker other) {
+        unseen.copyFrom(other.unseen);
+        System.arraycopy(other.groupCards, 0, groupCards, 0, MAX_GROUPS);
+        System.arraycopy(other.groupVoids, 0, groupVoids, 0, MAX_GROUPS);
+        System.arraycopy(other.groupUnseen, 0, groupUnseen, 0, MAX_GROUPS);
+        groups = other.groups;
+        freshCards = other.freshCards;
+        known.copyFrom(other.known);
+        voidChecks = other.voidChecks;
+        voidMisses = other.voidMisses;
+    }
+
+    // A card was seen somewhere other than the other hand, such as in this seat's own hand
+    public void see(int id) {
+        id = uncolored(id);
+        if (unseen.count(id) != 0) {
+            unseen.remove(id);
+            for (int g = 0; g < groups; g++) {
+                if (CardSet.contains(groupVoids[g], id)) {
+                    groupUnseen[g]--;
+                }
+            }
+        }
+    }
+
+    // Seen cards were shuffled back into the draw pile
+    public void unsee(int id) {
+        id = uncolored(id);
+        unseen.add(id);
+        for (int g = 0; g < groups; g++) {
+            if (CardSet.contains(groupVoids[g], id)) {
+                groupUnseen[g]++;
+            }
+        }
+    }
+
+    public void opponentPlayed(int id) {
+        id = uncolored(id);
+        if (known.count(id) != 0) {
+            known.remove(id);
+            return;
+        }
+        see(id);
+        // The card came from the oldest group that could have held it
+        for (int g = 0; g < groups; g++) {
+            if (!CardSet.contains(groupVoids[g], id)) {
+                takeFrom(g);
+                return;
+            }
+        }
+        if (freshCards != 0) {
+            freshCards--;
+            return;
+        }
+        if (groups != 0) {
+            // It was holding a card that it could have played, so the voids were wrong
+            voidChecks++;
+            voidMisses++;
+            clearVoids();
+            freshCards--;
+        }
+    }
+
+    // Called before the card is drawn, when the other seat draws instead of playing
+    public void opponentCouldNotPlay(int topOfDeck) {
+        opponentHadNone(CardSet.playableOn(topOfDeck));
+    }
+
+    // The same, for when the cards it was allowed to play weren't just the ones playable on the top of the deck
+    public void opponentHadNone(long cards) {
+        if (freshCards != 0) {
+            if (groups == MAX_GROUPS) {
+                // The oldest group's voids include the next one's, so keeping only the next one's is safe
+                groupCards[1] += groupCards[0];
+                removeGroup(0);
+            }
+            groupCards[groups] = freshCards;
+            groupVoids[groups] = 0;
+            groupUnseen[groups] = 0;
+            groups++;
+            freshCards = 0;
+        }
+        for (int g = 0; g < groups; g++) {
+            groupVoids[g] |= cards;
+            groupUnseen[g] = unseenIn(groupVoids[g]);
+        }
+    }
+
+    public void opponentDrew() {
+        freshCards++;
+    }
+
+    // Hands were swapped, so this seat now sees mine and knows theirs, which it held before, and nothing is left to guess
+    public void handsSwapped(CardSet mine, CardSet theirs) {
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            // Known cards were seen when this seat first held them
+            for (int i = mine.count(id) - known.count(id); i > 0; i--) {
+                see(id);
+            }
+        }
+        groups = 0;
+        freshCards = 0;
+        known.copyFrom(theirs);
+    }
+
+    // Checks the voids against the other hand when it is revealed at the end of a game
+    public void reveal(int[] ids, int length) {
+        if (groups == 0) {
+            return;
+        }
+        // Known cards aren't guesses, and a card in one group's voids could only have been in a later group or fresh
+        CardSet unknown = new CardSet();
+        CardSet knownLeft = new CardSet();
+        knownLeft.copyFrom(known);
+        for (int i = 0; i < length; i++) {
+            int id = uncolored(ids[i]);
+            if (knownLeft.count(id) != 0) {
+                knownLeft.remove(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        boolean fits = true;
+        int later = freshCards;
+        for (int g = groups-1; g >= 0; g--) {
+            int inVoids = unknown.countIn(groupVoids[g]);
+            if (inVoids > later) {
+                fits = false;
+            }
+            later += groupCards[g];
+        }
+        voidChecks++;
+        if (!fits) {
+            voidMisses++;
+        }
+    }
+
+    public int handSize() {
+        int size = freshCards + known.size();
+        for (int g = 0; g < groups; g++) {
+            size += groupCards[g];
+        }
+        return size;
+    }
+
+    public int unseenCount(int id) {
+        return unseen.count(id);
+    }
+
+    // Cards the other seat probably didn't have when it last drew instead of playing
+    public long voids() {
+        return groups == 0 ? 0 : groupVoids[groups-1];
+    }
+
+    // How likely it is that the voids are right
+    public double voidTrust() {
+        return (double) (voidChecks + PRIOR_CHECKS - voidMisses - PRIOR_MISSES) / (voidChecks + PRIOR_CHECKS);
+    }
+
+    // The chance that a single card in a group is the card
+    private double groupProbability(int g, int id) {
+        double trust = voidTrust();
+        double total = unseen.size() - trust*groupUnseen[g];
+        if (total <= 0) {
+            return 0;
+        }
+        double weight = CardSet.contains(groupVoids[g], id) ? 1 - trust : 1;
+        return weight*unseen.count(id)/total;
+    }
+
+    private double freshProbability(int id) {
+        return unseen.isEmpty() ? 0 : (double) unseen.count(id)/unseen.size();
+    }
+
+    // The expected number of copies of an (uncolored) card in the other hand
+    public double expectedCount(int id) {
+        double expected = known.count(id) + freshCards*freshProbability(id);
+        for (int g = 0; g < groups; g++) {
+            expected += groupCards[g]*groupProbability(g, id);
+        }
+        return Math.min(unseen.count(id) + known.count(id), expected);
+    }
+
+    // The chance that the other hand has at least one copy of an (uncolored) card
+    public double holdsProbability(int id) {
+        if (known.count(id) != 0) {
+            return 1;
+        }
+        double none = Math.pow(1 - freshProbability(id), freshCards);
+        for (int g = 0; g < groups; g++) {
+            none *= Math.pow(1 - groupProbability(g, id), groupCards[g]);
+        }
+        return 1 - none;
+    }
+
+    // The expected number of cards in the other hand that are in the mask
+    public double expectedIn(long mask) {
+        if (unseen.isEmpty()) {
+            return known.countIn(mask);
+        }
+        int unseenIn = unseenIn(mask);
+        double trust = voidTrust();
+        double expected = known.countIn(mask) + (double) freshCards*unseenIn/unseen.size();
+        for (int g = 0; g < groups; g++) {
+            double total = unseen.size() - trust*groupUnseen[g];
+            if (total > 0) {
+                expected += groupCards[g]*(unseenIn - trust*unseenIn(mask & groupVoids[g]))/total;
+            }
+        }
+        return expected;
+    }
+
+    private int unseenIn(long mask) {
+        int count = 0;
+        for (long m = mask; m != 0; m &= m - 1) {
+            count += unseen.count(Long.numberOfTrailingZeros(m));
+        }
+        return count;
+    }
+
+    private void takeFrom(int g) {
+        if (--groupCards[g] == 0) {
+            removeGroup(g);
+        }
+    }
+
+    private void removeGroup(int g) {
+        groups--;
+        System.arraycopy(groupCards, g+1, groupCards, g, groups-g);
+        System.arraycopy(groupVoids, g+1, groupVoids, g, groups-g);
+        System.arraycopy(groupUnseen, g+1, groupUnseen, g, groups-g);
+    }
+
+    private void clearVoids() {
+        for (int g = 0; g < groups; g++) {
+            freshCards += groupCards[g];
+        }
+        groups = 0;
+    }
+
+    private static int uncolored(int id) {
+        return UnoCard.fromId(id).withColor(UnoCard.NO_COLOR).getId();
+    }
+}
@@ -0,0 +1,226 @@
+package engine;
+
+import card.CardSet;
+import card.NormalCard;
+import card.UnoCard;
+import card.WildCard;
+
+import java.util.SplittableRandom;
+
+/*
+ *   The computer's strategy, separated from ComputerManager so that it can also play headless games.
+ *
+ *   The computer will chose the first possible option in the following list, with a few special cases to make it
+ * a bit less predictable or to help the player if they have been losing frequently. Also, the computer attempts
+ * to save wild cards until the end instead of wasting them early on: this is the core of its strategy.
+ *
+ * Play a wild card if the player is about to win       (except for sometimes when on a winning streak)
+ * Play a numeric card with the same color              (except for sometimes when on a winning streak)
+ * Play any card with the same color                    (except for sometimes when on a winning streak)
+ * Play a matching card with the best possible color    (or a random color sometimes if on a winning streak)
+ * Play a wild card                                     (or maybe not--more likely when on a winning streak--but
+ * Draw a card and play it if possible                     usually tries to save cards until the end of the game)
+ *
+ *   When the view tracks cards, the best color for a wild card also avoids colors the opponent probably has. When
+ * there is a WinTable (which is only loaded if the uno.winTable system property is set), whether to play a wild card or
+ * draw is decided by which leaves the computer more likely to win, instead of by how many cards are left in each hand. Under the stacking rules, a penalty is always passed on if the
+ * computer can.
+ */
+public final class ComputerPlayer implements Strategy {
+    // How many of its own cards of a color the computer would give up to name a color with one fewer opponent card
+    private static final double OPPONENT_COLOR_WEIGHT = 0.5;
+
+    private int winningBy = 0;
+    private int bestColor;
+
+    private final int[] colorCounts = new int[UnoCard.COLOR_MAX+1];
+
+    private final WinTable winTable;
+
+    public ComputerPlayer() {
+        this(WinTable.get());
+    }
+
+    // The table may be null to always use the fixed hand sizes
+    public ComputerPlayer(WinTable winTable) {
+        this.winTable = winTable;
+    }
+
+    @Override
+    public String getName() {
+        return Strategies.DEFAULT;
+    }
+
+    @Override
+    public int decide(GameView view) {
+        HandView hand = view.hand();
+        if (view.pendingDraws() != 0) {
+            return chooseStack(hand, view.rules().stackableOn[view.topOfDeck()]);
+        }
+        if (view.hasDrawn()) {
+            return chooseDrawnCard(hand, hand.count()-1, view.topOfDeck());
+        }
+        return chooseMove(hand, view.topOfDeck(), view.handSize(view.nextSeat()), view.isPeeking(), view.tracker(), view.random());
+    }
+
+    // The tracker may be null
+    public int chooseMove(HandView hand, int topOfDeckId, int opponentHandSize, boolean peeking, CardTracker tracker, SplittableRandom random) {
+        UnoCard topOfDeck = UnoCard.fromId(topOfDeckId);
+        CardSet handSet = hand.cardSet();
+        if (peeking) {
+            if (winningBy > 0) {
+                winningBy = 0;
+            } else if (winningBy > -5) {
+                winningBy--;
+            }
+        }
+        int playable = -1;
+        int nonWild = -1;
+        int matchColor = -1;
+        int matchWildColor = UnoCard.NO_COLOR;
+        for (int color = UnoCard.COLOR_MIN; color <= UnoCard.COLOR_MAX; color++) {
+            colorCounts[color] = handSet.countIn(CardSet.colorMask(color));
+        }
+        int colorOffset = random.nextInt(4);
+        int targetColor = topOfDeck.getColorCode();
+        int alternateColor = -1;
+        double maxColor = Double.NEGATIVE_INFINITY;
+        bestColor = colorOffset;
+        for (int i = colorOffset; i < 4+colorOffset; i++) {
+            int index = i%4;
+            int c = colorCounts[index];
+            if (index != targetColor) {
+                double score = c;
+                if (tracker != null) {
+                    score -= OPPONENT_COLOR_WEIGHT*tracker.expectedIn(CardSet.colorMask(index));
+                }
+                if (score >= maxColor) {
+                    maxColor = score;
+                    bestColor = index;
+                } else if (c != 0) {
+                    alternateColor = index;
+                }
+            }
+        }
+        if (alternateColor == -1) {
+            alternateColor = bestColor;
+        }
+        int handSize = hand.count();
+        int nonWildCount = 0;
+        long playableSet = handSet.playable(topOfDeck);
+        for (int c = playableSet == 0 ? -1 : handSize-1; c >= 0; c--) {
+            UnoCard card = UnoCard.fromId(hand.cardAt(c));
+            if (CardSet.contains(playableSet, card.getId())) {
+                playable = c;
+                if (card instanceof NormalCard) {
+                    if (opponentHandSize <= 2 && card.cardDraws() != 0) {
+                        matchColor = c;
+                        break;
+                    }
+                    int color = card.getColorCode();
+                    int count = colorCounts[color];
+                    if (count > nonWildCount) {
+                        nonWild = c;
+                        nonWildCount = count;
+                    }
+                    if (color == targetColor) {
+                        matchColor = c;
+                        if (card.isNumeric() && opponentHandSize > 2) {
+                            break;
+                        }
+                    }
+                } else if (opponentHandSize == 1 || opponentHandSize == 2 && random.nextBoolean()){
+                    matchWildColor = bestColor;
+                    matchColor = c;
+                    break;
+                }
+            }
+        }
+        // When winning too much, ease off to make the player feel better at the game
+        if (winningBy > 1 && handSize <= 10 && random.nextInt(2*Math.max(1, 6 - winningBy)) == 0) {
+            if (matchColor == -1 && nonWild != -1) {
+                // Switch colors before using all of that color if possible
+                return Move.play(nonWild, UnoCard.NO_COLOR);
+            }
+            // Act as though the opponent isn't as close to winning
+            opponentHandSize += 2;
+            if (handSize <= 7 && opponentHandSize > 4) {
+                // Otherwise, pick a suboptimal color for wild cards if it's not too risky
+                bestColor = alternateColor;
+            }
+        }
+        if (matchColor != -1) {
+            return Move.play(matchColor, matchWildColor);
+        } else if (nonWild != -1) {
+            return Move.play(nonWild, UnoCard.NO_COLOR);
+        } else if (playable != -1 && (shouldPlayWild(handSet, handSize, opponentHandSize, topOfDeckId, targetColor)
+                || random.nextInt(Math.max(2, 5 - winningBy)) == 0)) {
+            return Move.play(playable, bestColor);
+        } else {
+            return Move.DRAW;
+        }
+    }
+
+    // When only wild cards can be played, whether to play one now instead of saving it for later
+    private boolean shouldPlayWild(CardSet handSet, int handSize, int opponentHandSize, int topOfDeckId, int targetColor) {
+        if (winTable == null) {
+            return handSize <= 3 || handSize > 10 || opponentHandSize <= 3 || opponentHandSize > 10;
+        }
+        int wilds = handSet.countIn(CardSet.wildMask());
+        double play = winTable.winProbability(handSize-1, opponentHandSize, wilds-1, colorCounts[bestColor],
+            WinTable.TOP_WILD, false);
+        double draw = winTable.winProbability(handSize+1, opponentHandSize, wilds, colorCounts[targetColor],
+            WinTable.topClass(topOfDeckId), false);
+        return play >= draw;
+    }
+
+    // Under the stacking rules, a penalty is passed on whenever possible, saving wild cards if a draw two will do
+    private int chooseStack(HandView hand, long stackable) {
+        int wild = -1;
+        for (int c = hand.count()-1; c >= 0; c--) {
+            int id = hand.cardAt(c);
+            if (CardSet.contains(stackable, id)) {
+                if (!(UnoCard.fromId(id) instanceof WildCard)) {
+                    return Move.play(c, UnoCard.NO_COLOR);
+                }
+                wild = c;
+            }
+        }
+        if (wild == -1) {
+            return Move.DRAW;
+        }
+        CardSet handSet = hand.cardSet();
+        bestColor = UnoCard.COLOR_MIN;
+        for (int color = UnoCard.COLOR_MIN+1; color <= UnoCard.COLOR_MAX; color++) {
+            if (handSet.countIn(CardSet.colorMask(color)) > handSet.countIn(CardSet.colorMask(bestColor))) {
+                bestColor = color;
+            }
+        }
+        return Move.play(wild, bestColor);
+    }
+
+    // After drawing, the drawn card is played if possible
+    public int chooseDrawnCard(HandView hand, int c, int topOfDeckId) {
+        UnoCard card = UnoCard.fromId(hand.cardAt(c));
+        if (CardSet.canPlayOn(card, UnoCard.fromId(topOfDeckId))) {
+            return Move.play(c, card instanceof WildCard ? bestColor : UnoCard.NO_COLOR);
+        } else {
+            return Move.FINISH;
+        }
+    }
+
+    @Override
+    public void gameOver(boolean won) {
+        if (won) {
+            winningBy++;
+        } else {
+            winningBy--;
+        }
+    }
+
+    // When restoring, guess how much of an advantage the computer had last time
+    @Override
+    public void restore(int handSize, int opponentHandSize) {
+        winningBy = Math.max(-1, Math.min((opponentHandSize - handSize + 1) / 5, 3));
+    }
+}
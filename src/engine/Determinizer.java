@@ -0,0 +1,117 @@
+package engine;
+
+import card.CardSet;
+import card.DrawPile;
+import card.UnoCard;
+
+import java.util.SplittableRandom;
+
+/*
+ *   Deals random guesses at the cards a seat can't see (the other hands and the order of the draw pile) that agree with
+ * everything it can, so that a search can treat each guess as a game with no hidden information. Once loaded, any number
+ * of threads can deal from it at once, as long as each has its own state, random and scratch array.
+ */
+final class Determinizer {
+    private final int[] hand = new int[UnoCard.ID_COUNT*CardSet.MAX_COUNT];
+    private int handSize;
+    private final int[] handSizes = new int[SearchState.MAX_SEATS];
+    private final DrawPile unseenPile = new DrawPile();
+    private int[] unseen = new int[0];
+    private int seat;
+    private int seats;
+    private int direction;
+    private int topOfDeck;
+    private boolean hasDrawn;
+    private Rules rules = Rules.STANDARD;
+    private int pendingDraws;
+
+    void load(GameView view) {
+        HandView hand = view.hand();
+        handSize = hand.count();
+        for (int c = 0; c < handSize; c++) {
+            this.hand[c] = hand.cardAt(c);
+        }
+        seat = view.seat();
+        seats = view.seats();
+        direction = view.direction();
+        for (int s = 0; s < seats; s++) {
+            handSizes[s] = view.handSize(s);
+        }
+        topOfDeck = view.topOfDeck();
+        hasDrawn = view.hasDrawn();
+        rules = view.rules();
+        pendingDraws = view.pendingDraws();
+        view.unseenCards(unseenPile);
+        unseen = unseenPile.toIds();
+    }
+
+    int seat() {
+        return seat;
+    }
+
+    int seats() {
+        return seats;
+    }
+
+    // The states passed to deal must have been created with these rules
+    Rules rules() {
+        return rules;
+    }
+
+    // How long the scratch array passed to deal must be
+    int unseenCount() {
+        return unseen.length;
+    }
+
+    void deal(SearchState state, SplittableRandom random, int[] order) {
+        state.clear();
+        for (int c = 0; c < handSize; c++) {
+            state.addToHand(seat, hand[c]);
+        }
+        System.arraycopy(unseen, 0, order, 0, unseen.length);
+        int next = 0;
+        for (int s = 0; s < seats; s++) {
+            if (s != seat) {
+                for (int i = handSizes[s]; i > 0 && next < unseen.length; i--) {
+                    state.addToHand(s, take(order, next++, random));
+                }
+            }
+        }
+        // Shuffle whatever is left into the draw pile
+        int start = next;
+        while (next < unseen.length) {
+            take(order, next++, random);
+        }
+        state.setDeck(order, start, unseen.length-start);
+        state.setTopOfDeck(topOfDeck);
+        state.setTurn(seat, hasDrawn);
+        state.setDirection(direction);
+        state.setPendingDraws(pendingDraws);
+    }
+
+    // Swaps a random card from order[i..] into order[i] and returns it
+    private int take(int[] order, int i, SplittableRandom random) {
+        int j = i + random.nextInt(unseen.length - i);
+        int id = order[j];
+        order[j] = order[i];
+        order[i] = id;
+        return id;
+    }
+
+    // Turns a move for the seat at the root of a search back into a Move for its real hand
+    int toMove(HandView hand, int move) {
+        if (move == SearchState.DRAW) {
+            return Move.DRAW;
+        } else if (move == SearchState.PASS) {
+            // The draw pile is only ever empty in a guess, the real one is refilled from the discard pile
+            return hasDrawn ? Move.FINISH : Move.DRAW;
+        }
+        int id = SearchState.moveCard(move);
+        for (int c = hand.count()-1; c >= 0; c--) {
+            if (hand.cardAt(c) == id) {
+                return Move.play(c, SearchState.moveColor(move));
+            }
+        }
+        throw new IllegalStateException("error: card "+UnoCard.fromId(id)+" is not in the hand");
+    }
+}
@@ -0,0 +1,174 @@
+package engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ *   Plays the end of a two-seat game by solving it exactly. The opponent's hand and the order of the draw pile are
+ * hidden, so the solver is run on as many random guesses at them as fit in the time limit, and the move that wins in
+ * the most of them is played. Every thread shares one lock-free transposition table. The default strategy breaks ties
+ * (including when no move could be proven to win), and decides alone when there are more than two seats or when the
+ * other seat could jump in, since then the moves at the root would differ between guesses.
+ *
+ *   The time limit (in milliseconds) and number of threads can be set with the uno.endgame.millis and
+ * uno.endgame.threads system properties.
+ */
+public final class EndgamePlayer implements Strategy {
+    public static final String NAME = "endgame";
+
+    private static final int TABLE_BITS = 18;
+
+    private final long budget;
+    private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+    private final Worker[] workers;
+    private final Determinizer root = new Determinizer();
+    private final ComputerPlayer fallback = new ComputerPlayer();
+
+    private int determinizations = 0;
+    private int proven = 0;
+
+    public EndgamePlayer() {
+        this(Long.getLong("uno.endgame.millis", 100),
+             Integer.getInteger("uno.endgame.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public EndgamePlayer(long millis, int threads) {
+        budget = millis*1_000_000;
+        workers = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    // How many guesses were solved in the last decision, and how many of them had a proven result for every move
+    public int getDeterminizations() {
+        return determinizations;
+    }
+
+    public int getProven() {
+        return proven;
+    }
+
+    @Override
+    public int decide(GameView view) {
+        if (view.seats() != 2 || view.rules().hasJumpIn) {
+            return fallback.decide(view);
+        }
+        root.load(view);
+        long deadline = System.nanoTime() + budget;
+        SplittableRandom random = view.random();
+        for (Worker worker : workers) {
+            worker.start(random.split(), deadline);
+        }
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers.length-1];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = Strategies.searchPool().submit(workers[i+1]);
+        }
+        workers[0].run();
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        // Every guess has the same moves at the root, since the hand and top of the deck are known
+        Worker first = workers[0];
+        determinizations = 0;
+        proven = 0;
+        for (Worker worker : workers) {
+            determinizations += worker.determinizations;
+            proven += worker.proven;
+        }
+        HandView hand = view.hand();
+        int fallbackMove = fallback.decide(view);
+        int best = fallbackMove;
+        int bestWins = 0;
+        for (int i = 0; i < first.n; i++) {
+            int move = root.toMove(hand, first.rootMoves[i]);
+            int wins = 0;
+            for (Worker worker : workers) {
+                wins += worker.wins[i];
+            }
+            if (wins > bestWins || wins == bestWins && sameMove(hand, move, fallbackMove)) {
+                best = move;
+                bestWins = wins;
+            }
+        }
+        return best;
+    }
+
+    // Moves are the same if they play the same card with the same color, even from a different place in the hand
+    private static boolean sameMove(HandView hand, int a, int b) {
+        if (!Move.isPlay(a) || !Move.isPlay(b)) {
+            return a == b;
+        }
+        return hand.cardAt(Move.index(a)) == hand.cardAt(Move.index(b)) && Move.color(a) == Move.color(b);
+    }
+
+    @Override
+    public void gameOver(boolean won) {
+        fallback.gameOver(won);
+    }
+
+    @Override
+    public void restore(int handSize, int opponentHandSize) {
+        fallback.restore(handSize, opponentHandSize);
+    }
+
+    private final class Worker implements Runnable {
+        SearchState state;
+        final EndgameSolver solver = new EndgameSolver(table);
+        final int[] rootMoves = new int[SearchState.MAX_MOVES];
+        final int[] values = new int[SearchState.MAX_MOVES];
+        final int[] wins = new int[SearchState.MAX_MOVES];
+        int[] order = new int[0];
+        int n;
+
+        SplittableRandom random;
+        long deadline;
+        int determinizations;
+        int proven;
+
+        void start(SplittableRandom random, long deadline) {
+            if (state == null || state.getRules() != root.rules()) {
+                state = new SearchState(2, root.rules());
+            }
+            if (order.length < root.unseenCount()) {
+                order = new int[root.unseenCount()];
+            }
+            this.random = random;
+            this.deadline = deadline;
+            n = 0;
+            determinizations = 0;
+            proven = 0;
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] = 0;
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                root.deal(state, random, order);
+                n = solver.solve(state, rootMoves, values, deadline, random.nextLong());
+                if (solver.timedOut()) {
+                    break;
+                }
+                boolean allProven = true;
+                for (int i = 0; i < n; i++) {
+                    if (values[i] == EndgameSolver.WIN) {
+                        wins[i]++;
+                    }
+                    allProven &= values[i] != EndgameSolver.UNKNOWN;
+                }
+                determinizations++;
+                if (allProven) {
+                    proven++;
+                }
+            } while (System.nanoTime() < deadline);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package engine;
+
+/*
+ *   Solves two-seat games exactly once the order of the draw pile is fixed. A position is a win for the seat to move if
+ * some move leads to a win for it, and a loss if every move leads to a win for the other seat.
+ *
+ *   Moves are only looked at up to a limit on the number of plies, which is doubled until everything is proven or time
+ * runs out. Only proven results go into the transposition table, so an entry holds no matter how deep it was found
+ * or how the position was reached.
+ */
+public final class EndgameSolver {
+    public static final int WIN = 1;
+    public static final int UNKNOWN = 0;
+    public static final int LOSS = -1;
+
+    private static final int MAX_PLIES = 256;
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final TranspositionTable table;
+    private final int[][] moves = new int[MAX_PLIES][SearchState.MAX_MOVES];
+
+    private long salt;
+    private long deadline;
+    private boolean timedOut;
+    private long nodes = 0;
+
+    public EndgameSolver(TranspositionTable table) {
+        this.table = table;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    /*
+     *   Fills rootMoves with the legal moves (as generateMoves does) and values with whether each one is a WIN or LOSS
+     * for the seat to move, or UNKNOWN if it couldn't be proven in time. Returns the number of moves.
+     *
+     *   The salt is mixed into every hash, so that states with different decks can share a table.
+     */
+    public int solve(SearchState state, int[] rootMoves, int[] values, long deadline, long salt) {
+        if (state.seats() != 2) {
+            throw new IllegalArgumentException("error: only games with two seats can be solved");
+        }
+        this.salt = salt;
+        this.deadline = deadline;
+        timedOut = false;
+        int n = state.generateMoves(rootMoves);
+        for (int i = 0; i < n; i++) {
+            values[i] = UNKNOWN;
+        }
+        int seat = state.getTurn();
+        for (int limit = 2; limit <= MAX_PLIES && !timedOut; limit *= 2) {
+            boolean unknown = false;
+            for (int i = 0; i < n && !timedOut; i++) {
+                if (values[i] == UNKNOWN) {
+                    state.makeMove(rootMoves[i]);
+                    int value = valueFor(seat, state, search(state, 1, limit));
+                    state.unmakeMove();
+                    values[i] = value;
+                    unknown |= value == UNKNOWN;
+                }
+            }
+            if (!unknown) {
+                break;
+            }
+        }
+        return n;
+    }
+
+    // Returns the value of the position for the seat to move
+    private int search(SearchState state, int ply, int limit) {
+        if (state.isOver()) {
+            // The winner is always the last seat to move
+            return WIN;
+        } else if (ply >= limit) {
+            return UNKNOWN;
+        }
+        long key = state.hash() ^ salt;
+        long data = table.probe(key);
+        if (data != TranspositionTable.MISS) {
+            return (int) data - 2;
+        }
+        if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        if (timedOut) {
+            return UNKNOWN;
+        }
+        int[] moves = this.moves[ply];
+        int n = state.generateMoves(moves);
+        int seat = state.getTurn();
+        boolean unknown = false;
+        for (int i = 0; i < n; i++) {
+            state.makeMove(moves[i]);
+            int value = valueFor(seat, state, search(state, ply+1, limit));
+            state.unmakeMove();
+            if (value == WIN) {
+                table.store(key, WIN+2);
+                return WIN;
+            } else if (value == UNKNOWN) {
+                unknown = true;
+            }
+        }
+        if (unknown) {
+            return UNKNOWN;
+        }
+        table.store(key, LOSS+2);
+        return LOSS;
+    }
+
+    // Converts the value for the seat to move in the state to the value for the given seat
+    private static int valueFor(int seat, SearchState state, int value) {
+        return state.getTurn() == seat ? value : -value;
+    }
+}
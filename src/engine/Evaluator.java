@@ -0,0 +1,222 @@
+package engine;
+
+import card.CardSet;
+import card.UnoCard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/*
+ *   Scores a position for one seat with a linear function of features of its hand and the top of the deck, where a
+ * positive score means the seat is more likely to win. The features are the things the computer's heuristics look at
+ * (how many cards of each color it has, how many wild cards it is saving, which cards it could play) along with both
+ * hand sizes.
+ *
+ *   The weights are fit by EvaluatorTrainer and stored in evaluator.weights next to this class. If that file is
+ * missing, a copy of them from the last training run is used. Evaluating doesn't allocate, so search can call it as often as it needs to.
+ */
+public final class Evaluator {
+    public static final int BIAS = 0;
+    public static final int HAND_SIZE = 1;
+    public static final int OPPONENT_HAND_SIZE = 2;
+    public static final int TO_MOVE = 3;
+    public static final int WILDS = 4;
+    public static final int DRAW_FOURS = 5;
+    public static final int ACTIONS = 6;
+    public static final int MAX_COLOR = 7;
+    public static final int COLORS_HELD = 8;
+    public static final int MATCHING_TOP_COLOR = 9;
+    public static final int PLAYABLE = 10;
+    public static final int PLAYABLE_NON_WILD = 11;
+    public static final int TOP_IS_ACTION = 12;
+    public static final int ONE_CARD = 13;
+    public static final int OPPONENT_ONE_CARD = 14;
+    public static final int PENDING_DRAWS = 15;
+    public static final int FEATURE_COUNT = 16;
+
+    public static final String RESOURCE = "evaluator.weights";
+
+    private static final float[] DEFAULT_WEIGHTS = {
+        0.30f, -0.12f, 0.09f, 0.14f, 0.29f, 0.79f, 0.21f, -0.04f, -0.25f, -0.02f, 0.14f, -0.05f, 0.03f, 0.52f, -0.64f, 0.0f,
+    };
+
+    private static final int[] TOP_COLOR = new int[UnoCard.ID_COUNT];
+    private static final long ACTION_MASK;
+    private static final long DRAW_FOUR_MASK;
+
+    private final float[] weights;
+
+    public Evaluator(float[] weights) {
+        if (weights.length != FEATURE_COUNT) {
+            throw new IllegalArgumentException("error: expected "+FEATURE_COUNT+" weights but got "+weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    private static final class DefaultHolder {
+        static final Evaluator DEFAULT = load();
+    }
+
+    // The evaluator with the trained weights (or the default weights if there aren't any)
+    public static Evaluator get() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    private static Evaluator load() {
+        try (InputStream in = Evaluator.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                return new Evaluator(readWeights(in));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not load "+RESOURCE+": "+e.getMessage());
+        }
+        return new Evaluator(DEFAULT_WEIGHTS);
+    }
+
+    public float[] getWeights() {
+        return weights.clone();
+    }
+
+    public float evaluate(SearchState state, int seat) {
+        return score(state, seat, weights, null);
+    }
+
+    public float winProbability(SearchState state, int seat) {
+        return (float) (1 / (1 + Math.exp(-evaluate(state, seat))));
+    }
+
+    // Fills features with the features of the position for the seat
+    public static void features(SearchState state, int seat, float[] features) {
+        score(state, seat, null, features);
+    }
+
+    // Either weights or features may be null
+    private static float score(SearchState state, int seat, float[] weights, float[] features) {
+        int opponent = seat;
+        for (int s = 0; s < state.seats(); s++) {
+            if (s != seat && (opponent == seat || state.handSize(s) < state.handSize(opponent))) {
+                opponent = s;
+            }
+        }
+        int handSize = state.handSize(seat);
+        int opponentHandSize = state.handSize(opponent);
+        long hand = state.handMask(seat);
+        int top = state.getTopOfDeck();
+        long playableMask = hand & state.getRules().playableOn[top];
+
+        int wilds = 0;
+        int drawFours = 0;
+        int actions = 0;
+        int playable = 0;
+        int playableNonWild = 0;
+        int maxColor = 0;
+        int colorsHeld = 0;
+        int matchingTopColor = 0;
+        for (long mask = hand & CardSet.wildMask(); mask != 0; mask &= mask - 1) {
+            int id = Long.numberOfTrailingZeros(mask);
+            int count = state.count(seat, id);
+            if (CardSet.contains(DRAW_FOUR_MASK, id)) {
+                drawFours += count;
+            } else {
+                wilds += count;
+            }
+            if (CardSet.contains(playableMask, id)) {
+                playable += count;
+            }
+        }
+        for (int color = UnoCard.COLOR_MIN; color <= UnoCard.COLOR_MAX; color++) {
+            int colorCount = 0;
+            for (long mask = hand & CardSet.colorMask(color); mask != 0; mask &= mask - 1) {
+                int id = Long.numberOfTrailingZeros(mask);
+                int count = state.count(seat, id);
+                colorCount += count;
+                if (CardSet.contains(ACTION_MASK, id)) {
+                    actions += count;
+                }
+                if (CardSet.contains(playableMask, id)) {
+                    playable += count;
+                    playableNonWild += count;
+                }
+            }
+            if (colorCount != 0) {
+                colorsHeld++;
+                maxColor = Math.max(maxColor, colorCount);
+                if (color == TOP_COLOR[top]) {
+                    matchingTopColor = colorCount;
+                }
+            }
+        }
+
+        float score = 0;
+        score += feature(weights, features, BIAS, 1);
+        score += feature(weights, features, HAND_SIZE, handSize);
+        score += feature(weights, features, OPPONENT_HAND_SIZE, opponentHandSize);
+        score += feature(weights, features, TO_MOVE, state.getTurn() == seat ? 1 : 0);
+        score += feature(weights, features, WILDS, wilds);
+        score += feature(weights, features, DRAW_FOURS, drawFours);
+        score += feature(weights, features, ACTIONS, actions);
+        score += feature(weights, features, MAX_COLOR, maxColor);
+        score += feature(weights, features, COLORS_HELD, colorsHeld);
+        score += feature(weights, features, MATCHING_TOP_COLOR, matchingTopColor);
+        score += feature(weights, features, PLAYABLE, playable);
+        score += feature(weights, features, PLAYABLE_NON_WILD, playableNonWild);
+        score += feature(weights, features, TOP_IS_ACTION, CardSet.contains(ACTION_MASK, top) ? 1 : 0);
+        score += feature(weights, features, ONE_CARD, handSize == 1 ? 1 : 0);
+        score += feature(weights, features, OPPONENT_ONE_CARD, opponentHandSize == 1 ? 1 : 0);
+        score += feature(weights, features, PENDING_DRAWS, state.getPendingDraws());
+        return score;
+    }
+
+    private static float feature(float[] weights, float[] features, int index, float value) {
+        if (features != null) {
+            features[index] = value;
+        }
+        return weights == null ? 0 : weights[index]*value;
+    }
+
+    public static float[] readWeights(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int count = data.readInt();
+        if (count != FEATURE_COUNT) {
+            throw new IOException("expected "+FEATURE_COUNT+" weights but found "+count);
+        }
+        float[] weights = new float[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = data.readFloat();
+        }
+        return weights;
+    }
+
+    public static void writeWeights(OutputStream out, float[] weights) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(weights.length);
+        for (float weight : weights) {
+            data.writeFloat(weight);
+        }
+        data.flush();
+    }
+
+    static {
+        long actionMask = 0;
+        long drawFourMask = 0;
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            UnoCard card = UnoCard.fromId(id);
+            boolean uncolored = id == UnoCard.wildId(false, UnoCard.NO_COLOR) || id == UnoCard.wildId(true, UnoCard.NO_COLOR);
+            TOP_COLOR[id] = uncolored ? UnoCard.NO_COLOR : card.getColorCode();
+            if (!card.isNumeric()) {
+                if (CardSet.contains(CardSet.wildMask(), id)) {
+                    if (card.cardDraws() != 0) {
+                        drawFourMask |= 1L << id;
+                    }
+                } else {
+                    actionMask |= 1L << id;
+                }
+            }
+        }
+        ACTION_MASK = actionMask;
+        DRAW_FOUR_MASK = drawFourMask;
+    }
+}
@@ -0,0 +1,176 @@
+package engine;
+
+import manager.Deal;
+import manager.GameRandom;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*
+ *   Fits the Evaluator's weights by logistic regression on positions from computer-vs-computer games. At the start of
+ * every turn, the features of both seats are recorded, and once the game is over each is labelled with whether that
+ * seat won. Games are streamed through AdaGrad instead of being stored, so any number of them can be used.
+ *
+ *   Afterwards, the weights are checked on games that weren't trained on, against always guessing that the seat to
+ * move wins as often as it did in training.
+ *
+ *   Usage: java engine.EvaluatorTrainer [-games N] [-test N] [-seed N] [-out FILE]
+ */
+public final class EvaluatorTrainer {
+    private EvaluatorTrainer() {}
+
+    private static final float LEARNING_RATE = 0.05f;
+    private static final int MAX_TURNS = 10_000;
+
+    private final float[] weights = new float[Evaluator.FEATURE_COUNT];
+    private final float[] gradientSquares = new float[Evaluator.FEATURE_COUNT];
+
+    // Features of every position in the current game, labelled once it is over
+    private float[] positions = new float[1024*Evaluator.FEATURE_COUNT];
+    private int[] seats = new int[1024];
+    private int positionCount = 0;
+
+    private final float[] features = new float[Evaluator.FEATURE_COUNT];
+    private final SplittableRandom random = new SplittableRandom(0);
+    private SearchState search;
+
+    private long samples = 0;
+    private double loss = 0;
+    private long moverWins = 0;
+
+    // Plays a game, then either learns from its positions or only measures the loss on them
+    private void playGame(long seed, Strategy[] players, boolean learn) {
+        GameState state = new GameState(new Deal(new GameRandom(seed)), seed % 2 == 0);
+        if (search == null || search.seats() != state.seats()) {
+            search = new SearchState(state.seats());
+        }
+        GameEngine engine = new GameEngine(state);
+        StateView view = new StateView(engine);
+        positionCount = 0;
+        for (int moves = 0; !state.isOver() && moves < MAX_TURNS; moves++) {
+            if (!state.hasDrawn()) {
+                search.load(state, random);
+                for (int seat = 0; seat < state.seats(); seat++) {
+                    record(seat);
+                }
+            }
+            view.apply(players[state.getTurn()].decide(view));
+        }
+        if (!state.isOver()) {
+            return;
+        }
+        int winner = state.getWinner();
+        for (int seat = 0; seat < state.seats(); seat++) {
+            players[seat].gameOver(seat == winner);
+        }
+        for (int p = 0; p < positionCount; p++) {
+            int offset = p*Evaluator.FEATURE_COUNT;
+            float label = seats[p] == winner ? 1 : 0;
+            float prediction = predict(positions, offset);
+            loss += logLoss(prediction, label);
+            samples++;
+            if (positions[offset+Evaluator.TO_MOVE] != 0 && label != 0) {
+                moverWins++;
+            }
+            if (learn) {
+                float error = prediction - label;
+                for (int f = 0; f < Evaluator.FEATURE_COUNT; f++) {
+                    float gradient = error*positions[offset+f];
+                    if (gradient != 0) {
+                        gradientSquares[f] += gradient*gradient;
+                        weights[f] -= LEARNING_RATE*gradient/(float) Math.sqrt(gradientSquares[f]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void record(int seat) {
+        if (positionCount == seats.length) {
+            seats = Arrays.copyOf(seats, 2*seats.length);
+            positions = Arrays.copyOf(positions, 2*positions.length);
+        }
+        Evaluator.features(search, seat, features);
+        System.arraycopy(features, 0, positions, positionCount*Evaluator.FEATURE_COUNT, Evaluator.FEATURE_COUNT);
+        seats[positionCount++] = seat;
+    }
+
+    private float predict(float[] positions, int offset) {
+        float score = 0;
+        for (int f = 0; f < Evaluator.FEATURE_COUNT; f++) {
+            score += weights[f]*positions[offset+f];
+        }
+        return (float) (1 / (1 + Math.exp(-score)));
+    }
+
+    private static double logLoss(double prediction, double label) {
+        prediction = Math.min(Math.max(prediction, 1e-6), 1 - 1e-6);
+        return -(label*Math.log(prediction) + (1 - label)*Math.log(1 - prediction));
+    }
+
+    private void resetStats() {
+        samples = 0;
+        loss = 0;
+        moverWins = 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long games = 20_000;
+        long testGames = 2_000;
+        long seed = 0;
+        String out = "src/engine/"+Evaluator.RESOURCE;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-games":
+                games = Long.parseLong(args[++i]);
+                break;
+            case "-test":
+                testGames = Long.parseLong(args[++i]);
+                break;
+            case "-seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "-out":
+                out = args[++i];
+                break;
+            default:
+                System.err.println("Unknown option: "+args[i]);
+                System.exit(1);
+            }
+        }
+        EvaluatorTrainer trainer = new EvaluatorTrainer();
+        Strategy[] players = {new ComputerPlayer(), new ComputerPlayer()};
+        long start = System.nanoTime();
+        for (long i = 0; i < games; i++) {
+            trainer.playGame(seed+i, players, true);
+        }
+        double seconds = (System.nanoTime() - start)/1e9;
+        System.out.printf("trained on %,d positions from %,d games in %.2f s%n", trainer.samples, games, seconds);
+        // The chance that the seat to move wins, which is the best guess without looking at the position
+        double baseRate = 2.0*trainer.moverWins/trainer.samples;
+
+        trainer.resetStats();
+        for (long i = 0; i < testGames; i++) {
+            trainer.playGame(seed+games+i, players, false);
+        }
+        double testLoss = trainer.loss/trainer.samples;
+        double baseLoss = baseRate*logLoss(baseRate, 1) + (1 - baseRate)*logLoss(baseRate, 0);
+        System.out.printf("held-out log loss: %.4f (%,d positions, baseline %.4f)%n", testLoss, trainer.samples, baseLoss);
+
+        String[] names = {
+            "bias", "hand size", "opponent hand size", "to move", "wilds", "draw fours", "actions", "max color",
+            "colors held", "matching top color", "playable", "playable non-wild", "top is action", "one card",
+            "opponent one card", "pending draws",
+        };
+        for (int f = 0; f < Evaluator.FEATURE_COUNT; f++) {
+            System.out.printf("%-20s %8.4f%n", names[f], trainer.weights[f]);
+        }
+        try (OutputStream stream = new FileOutputStream(out)) {
+            Evaluator.writeWeights(stream, trainer.weights);
+        }
+        System.out.println("wrote "+out);
+    }
+}
@@ -0,0 +1,259 @@
+package engine;
+
+import card.CardSet;
+import card.UnoCard;
+import card.WildCard;
+
+/*
+ *   Applies moves to a GameState, which is where the rules of the game are kept. What can be played and what each card
+ * does come from the state's Rules, so a game can be played with house rules just like a search can. UnoPanel animates
+ * the moves of its engine through a GameListener, but without one there are no events, animations or repainting, so
+ * that many games can be played at once on any thread.
+ */
+public final class GameEngine {
+    private static final GameListener NO_LISTENER = new GameListener() {};
+
+    private final GameState state;
+    private GameListener listener = NO_LISTENER;
+    private CardSource source = CardSource.RANDOM;
+
+    public GameEngine(GameState state) {
+        this.state = state;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public void setListener(GameListener listener) {
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    public void setSource(CardSource source) {
+        this.source = source == null ? CardSource.RANDOM : source;
+    }
+
+    public Hand current() {
+        return state.hands[state.turn];
+    }
+
+    public int nextSeat() {
+        return seatAfter(state.turn);
+    }
+
+    public int seatAfter(int seat) {
+        int next = seat + state.direction;
+        if (next == state.hands.length) {
+            return 0;
+        } else if (next < 0) {
+            return state.hands.length-1;
+        }
+        return next;
+    }
+
+    public boolean canDraw() {
+        return !state.isOver() && !state.hasDrawn;
+    }
+
+    // Every card the seat whose turn it is would be allowed to play, whether or not it has one
+    public long legalCards() {
+        Rules rules = state.rules;
+        return state.pendingDraws != 0 ? rules.stackableOn[state.topOfDeck] : rules.playableOn[state.topOfDeck];
+    }
+
+    public long playable() {
+        return state.isOver() ? 0 : current().set().mask() & legalCards();
+    }
+
+    public boolean canPlay(int c) {
+        return CardSet.contains(playable(), current().get(c));
+    }
+
+    // The cards another seat could play out of turn under the jump-in rules, which are ones just like the top of the deck
+    public long jumpIns(int seat) {
+        if (!state.rules.hasJumpIn || state.isOver() || seat == state.turn || state.pendingDraws != 0) {
+            return 0;
+        }
+        return state.hands[seat].set().mask() & state.rules.jumpInOn[state.topOfDeck];
+    }
+
+    public boolean canJumpIn(int seat, int c) {
+        return CardSet.contains(jumpIns(seat), state.hands[seat].get(c));
+    }
+
+    // Drawing with cards stacked on the seat takes all of them and ends its turn, otherwise it draws the turn's card
+    public int draw() {
+        if (!canDraw()) {
+            throw new IllegalStateException("error: cannot draw a second card");
+        }
+        if (state.pendingDraws != 0) {
+            int id = -1;
+            for (int i = state.pendingDraws; i > 0; i--) {
+                id = drawFromDeck(state.turn);
+                current().add(id);
+                listener.cardDrawn(state.turn, id);
+            }
+            state.pendingDraws = 0;
+            nextTurn();
+            return id;
+        }
+        int id = drawFromDeck(state.turn);
+        current().add(id);
+        state.hasDrawn = true;
+        listener.cardDrawn(state.turn, id);
+        return id;
+    }
+
+    // Gives the seat a card outside of the rules, which is how peeking is punished
+    public int deal(int seat) {
+        int id = drawFromDeck(seat);
+        state.hands[seat].add(id);
+        listener.cardDealt(seat, id);
+        return id;
+    }
+
+    // Starts the game with the seat's turn
+    public void start(int seat) {
+        state.turn = seat;
+        state.hasDrawn = false;
+        listener.turnStarted(seat);
+    }
+
+    /*
+     *   For a game where the seat's hand can't be seen: the card at c was only standing in for a card that turned out to
+     * be id. The real card is swapped with whatever is standing in for it, so the hand and the draw pile together still
+     * hold every card that hasn't been seen.
+     */
+    public void reveal(int seat, int c, int id) {
+        Hand hand = state.hands[seat];
+        int standIn = hand.get(c);
+        if (standIn == id) {
+            return;
+        }
+        int other = hand.lastIndexOf(id);
+        if (other >= 0) {
+            hand.replace(other, standIn);
+        } else {
+            state.deck.remove(id);
+            state.deck.add(standIn);
+        }
+        hand.replace(c, id);
+    }
+
+    // The color is only used for wild cards, which must have one
+    public void play(int c, int color) {
+        if (!canPlay(c)) {
+            throw new IllegalStateException("error: cannot play card "+c+" on "+UnoCard.fromId(state.topOfDeck));
+        }
+        UnoCard card = UnoCard.fromId(current().get(c));
+        int action = state.rules.actions[card.getId()];
+        if (card instanceof WildCard) {
+            if (color < UnoCard.COLOR_MIN || color > UnoCard.COLOR_MAX) {
+                throw new IllegalArgumentException("error: wild card played without a color");
+            }
+            card = card.withColor(color);
+        }
+        current().remove(c);
+        state.addDiscard(state.topOfDeck);
+        state.topOfDeck = card.getId();
+        listener.cardPlayed(state.turn, c, state.topOfDeck);
+        if (current().isEmpty()) {
+            state.winner = state.turn;
+            return;
+        }
+        if ((action & Rules.SWAP_HANDS) != 0) {
+            int other = nextSeat();
+            swapHands(state.turn, other);
+            listener.handsSwapped(state.turn, other);
+        } else if ((action & Rules.ROTATE_HANDS) != 0) {
+            rotateHands();
+            listener.handsRotated(state.direction);
+        }
+        if ((action & Rules.REVERSE) != 0 && state.hands.length > 2) {
+            state.direction = -state.direction;
+            nextTurn();
+        } else if ((action & Rules.SKIP) != 0) {
+            int target = nextSeat();
+            for (int i = action & Rules.DRAWS_MASK; i > 0; i--) {
+                int id = drawFromDeck(target);
+                state.hands[target].add(id);
+                listener.cardDrawn(target, id);
+            }
+            // With two seats, skipping the other player means playing again
+            state.turn = seatAfter(target);
+            state.hasDrawn = false;
+            listener.turnStarted(state.turn);
+        } else {
+            // A stacked penalty is passed on to the next seat instead of being drawn now
+            if ((action & Rules.STACK) != 0) {
+                state.pendingDraws += action & Rules.DRAWS_MASK;
+            }
+            nextTurn();
+        }
+    }
+
+    // Plays the seat's card at c out of turn, after which play carries on from that seat
+    public void jumpIn(int seat, int c) {
+        if (!canJumpIn(seat, c)) {
+            throw new IllegalStateException("error: cannot jump in with card "+c+" on "+UnoCard.fromId(state.topOfDeck));
+        }
+        state.turn = seat;
+        state.hasDrawn = false;
+        play(c, UnoCard.NO_COLOR);
+    }
+
+    public void finishTurn() {
+        if (state.isOver()) {
+            throw new IllegalStateException("error: the game is already over");
+        }
+        if (state.pendingDraws != 0) {
+            throw new IllegalStateException("error: the stacked cards must be drawn first");
+        }
+        nextTurn();
+    }
+
+    private void nextTurn() {
+        state.turn = nextSeat();
+        state.hasDrawn = false;
+        listener.turnStarted(state.turn);
+    }
+
+    private void swapHands(int a, int b) {
+        Hand hand = state.hands[a];
+        state.hands[a] = state.hands[b];
+        state.hands[b] = hand;
+    }
+
+    // Passes every hand to the next seat in the direction of play
+    private void rotateHands() {
+        Hand[] hands = state.hands;
+        if (state.direction > 0) {
+            Hand last = hands[hands.length-1];
+            System.arraycopy(hands, 0, hands, 1, hands.length-1);
+            hands[0] = last;
+        } else {
+            Hand first = hands[0];
+            System.arraycopy(hands, 1, hands, 0, hands.length-1);
+            hands[hands.length-1] = first;
+        }
+    }
+
+    // If the deck is empty, use discarded cards
+    private int drawFromDeck(int seat) {
+        if (state.deck.isEmpty()) {
+            if (state.discardSize == 0) {
+                state.deck.addNewDeck();
+                int[] ids = state.deck.toIds();
+                listener.deckRefilled(ids, ids.length);
+            } else {
+                for (int i = 0; i < state.discardSize; i++) {
+                    state.deck.add(state.discard[i]);
+                }
+                listener.deckRefilled(state.discard, state.discardSize);
+                state.discardSize = 0;
+            }
+            state.drawRandom = state.random.reshuffle();
+        }
+        return source.draw(state, seat);
+    }
+}
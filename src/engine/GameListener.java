@@ -0,0 +1,28 @@
+package engine;
+
+/*
+ *   Hears about everything a GameEngine does during a move, in the order it happens, which is how UnoPanel animates
+ * the game and records it. The engine calls it during the move, so it must not change the state.
+ */
+public interface GameListener {
+    // A card was drawn into the seat's hand, either as its turn's draw or as the penalty of a card played on it
+    default void cardDrawn(int seat, int id) {}
+
+    // A card was given to the seat outside of the rules by GameEngine.deal
+    default void cardDealt(int seat, int id) {}
+
+    // The card at c in the seat's hand was played, and id has the color it was given if it is a wild card
+    default void cardPlayed(int seat, int c, int id) {}
+
+    // The seat swapped hands with the other seat, because of a 7 under the seven-o rules
+    default void handsSwapped(int seat, int other) {}
+
+    // Every hand was passed on in the direction of play, because of a 0 under the seven-o rules
+    default void handsRotated(int direction) {}
+
+    // A turn started, which is the seat that just played again after skipping everyone else
+    default void turnStarted(int seat) {}
+
+    // The draw pile ran out and these cards were shuffled into it, only valid until this returns
+    default void deckRefilled(int[] ids, int length) {}
+}
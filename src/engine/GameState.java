@@ -0,0 +1,200 @@
+package engine;
+
+import card.CardSet;
+import card.DrawPile;
+import card.UnoCard;
+import manager.Deal;
+import manager.DeckManager;
+import manager.GameRandom;
+
+import java.util.SplittableRandom;
+
+/*
+ *   Everything needed to play a game without a display: the draw pile, the discard pile, every hand, whose turn it is
+ * and whether they have drawn yet. A GameState doesn't check any rules by itself, that is done by GameEngine with the
+ * house rules the state was given (the standard rules unless setRules is called before the game starts).
+ */
+public final class GameState {
+    public static final int PLAYER = 0;
+    public static final int OPPONENT = 1;
+    public static final int NO_WINNER = -1;
+
+    public static final int MIN_SEATS = 2;
+    public static final int MAX_SEATS = 10;
+
+    GameRandom random;
+    SplittableRandom drawRandom;
+
+    Rules rules = Rules.STANDARD;
+
+    final DrawPile deck = new DrawPile();
+    final Hand[] hands;
+
+    int[] discard = new int[UnoCard.ID_COUNT];
+    int discardSize = 0;
+
+    int topOfDeck;
+    int turn;
+    int direction = 1;
+    boolean hasDrawn = false;
+    int winner = NO_WINNER;
+    // Cards stacked on the seat whose turn it is, which it must draw unless it stacks another
+    int pendingDraws = 0;
+
+    GameState(int seats) {
+        if (seats < MIN_SEATS || seats > MAX_SEATS) {
+            throw new IllegalArgumentException("error: games must have between "+MIN_SEATS+" and "+MAX_SEATS+" seats");
+        }
+        hands = new Hand[seats];
+        for (int seat = 0; seat < seats; seat++) {
+            hands[seat] = new Hand();
+        }
+    }
+
+    // An empty table, which is filled in afterwards from something like a save
+    public GameState(int seats, GameRandom random) {
+        this(seats);
+        this.random = random;
+        drawRandom = random.deal();
+    }
+
+    public GameState(Deal deal, boolean playerWillStart) {
+        this(2);
+        random = deal.random;
+        drawRandom = random.deal();
+        deck.copyFrom(deal.deck);
+        for (int i = 0; i < deal.playerHand.length; i++) {
+            hands[PLAYER].add(deal.playerHand[i].getId());
+            hands[OPPONENT].add(deal.opponentHand[i].getId());
+        }
+        topOfDeck = deal.topOfDeck.getId();
+        turn = playerWillStart ? PLAYER : OPPONENT;
+    }
+
+    // Deals a game for any number of seats, shuffling together as many decks as the table needs
+    public GameState(int seats, GameRandom random, int firstSeat) {
+        this(seats);
+        this.random = random;
+        drawRandom = random.deal();
+        for (int i = DeckManager.decksFor(seats); i > 0; i--) {
+            deck.addNewDeck();
+        }
+        for (int i = 0; i < DeckManager.CARDS_PER_HAND; i++) {
+            for (int seat = 0; seat < seats; seat++) {
+                hands[seat].add(deck.draw(drawRandom).getId());
+            }
+        }
+        topOfDeck = deck.drawMatching(CardSet.numericMask(), drawRandom).getId();
+        turn = firstSeat;
+    }
+
+    public GameState(GameState other) {
+        this(other.hands.length);
+        copyFrom(other);
+    }
+
+    // The random streams are shared rather than copied, so a copy will not draw the same cards as the original
+    public void copyFrom(GameState other) {
+        random = other.random;
+        drawRandom = other.drawRandom;
+        rules = other.rules;
+        deck.copyFrom(other.deck);
+        for (int seat = 0; seat < hands.length; seat++) {
+            hands[seat].copyFrom(other.hands[seat]);
+        }
+        if (discard.length < other.discardSize) {
+            discard = new int[other.discard.length];
+        }
+        System.arraycopy(other.discard, 0, discard, 0, other.discardSize);
+        discardSize = other.discardSize;
+        topOfDeck = other.topOfDeck;
+        turn = other.turn;
+        direction = other.direction;
+        hasDrawn = other.hasDrawn;
+        winner = other.winner;
+        pendingDraws = other.pendingDraws;
+    }
+
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    public Rules getRules() {
+        return rules;
+    }
+
+    public void setRules(Rules rules) {
+        this.rules = rules;
+    }
+
+    public DrawPile getDeck() {
+        return deck;
+    }
+
+    public int seats() {
+        return hands.length;
+    }
+
+    public Hand getHand(int seat) {
+        return hands[seat];
+    }
+
+    public int getDiscardSize() {
+        return discardSize;
+    }
+
+    public int getDiscard(int i) {
+        return discard[i];
+    }
+
+    public void addDiscard(int id) {
+        if (discardSize == discard.length) {
+            int[] newDiscard = new int[discardSize*2];
+            System.arraycopy(discard, 0, newDiscard, 0, discardSize);
+            discard = newDiscard;
+        }
+        discard[discardSize++] = id;
+    }
+
+    public int getTopOfDeck() {
+        return topOfDeck;
+    }
+
+    public void setTopOfDeck(int id) {
+        topOfDeck = id;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public void setTurn(int seat, boolean hasDrawn) {
+        turn = seat;
+        this.hasDrawn = hasDrawn;
+    }
+
+    // 1 for increasing seat numbers, or -1 after an odd number of reverses
+    public int getDirection() {
+        return direction;
+    }
+
+    public boolean hasDrawn() {
+        return hasDrawn;
+    }
+
+    public int getPendingDraws() {
+        return pendingDraws;
+    }
+
+    public void setPendingDraws(int pendingDraws) {
+        this.pendingDraws = pendingDraws;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isOver() {
+        return winner != NO_WINNER;
+    }
+}
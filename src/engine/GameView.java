@@ -0,0 +1,38 @@
+package engine;
+
+import card.DrawPile;
+
+import java.util.SplittableRandom;
+
+// What a strategy is allowed to see when it is asked to make a decision for the seat whose turn it is
+public interface GameView {
+    int seat();
+    int seats();
+    int nextSeat();
+    int direction();
+
+    HandView hand();
+    int handSize(int seat);
+
+    // Fills unseen with every card this seat can't see: the draw pile and everyone else's hands
+    void unseenCards(DrawPile unseen);
+
+    int topOfDeck();
+    int deckSize();
+    boolean hasDrawn();
+    boolean isPeeking();
+
+    default Rules rules() {
+        return Rules.STANDARD;
+    }
+
+    // Cards stacked on this seat under the stacking rules, which it must draw unless it stacks another
+    default int pendingDraws() {
+        return 0;
+    }
+
+    SplittableRandom random();
+
+    // What this seat has worked out about the next seat's hand, or null if nothing is tracked
+    CardTracker tracker();
+}
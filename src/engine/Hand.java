@@ -0,0 +1,92 @@
+package engine;
+
+import card.CardSet;
+
+// An ordered hand of card IDs, where removing a card shifts the later cards down just like HandManager.hand
+public final class Hand implements HandView {
+    private int[] cards = new int[16];
+    private int size = 0;
+
+    private final CardSet set = new CardSet();
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int c) {
+        if (c >= size) {
+            throw new IndexOutOfBoundsException("card "+c+" of hand with "+size+" cards");
+        }
+        return cards[c];
+    }
+
+    public CardSet set() {
+        return set;
+    }
+
+    @Override
+    public int count() {
+        return size;
+    }
+
+    @Override
+    public int cardAt(int c) {
+        return get(c);
+    }
+
+    @Override
+    public CardSet cardSet() {
+        return set;
+    }
+
+    public void add(int id) {
+        if (size == cards.length) {
+            int[] newCards = new int[size*2];
+            System.arraycopy(cards, 0, newCards, 0, size);
+            cards = newCards;
+        }
+        cards[size++] = id;
+        set.add(id);
+    }
+
+    // Puts another card in place of the one at c
+    public void replace(int c, int id) {
+        set.remove(get(c));
+        cards[c] = id;
+        set.add(id);
+    }
+
+    public int remove(int c) {
+        int id = get(c);
+        System.arraycopy(cards, c+1, cards, c, size-c-1);
+        size--;
+        set.remove(id);
+        return id;
+    }
+
+    // Finds the last card in the hand with the given ID
+    public int lastIndexOf(int id) {
+        for (int c = size-1; c >= 0; c--) {
+            if (cards[c] == id) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    public void clear() {
+        size = 0;
+        set.clear();
+    }
+
+    public void copyFrom(Hand other) {
+        clear();
+        for (int c = 0; c < other.size; c++) {
+            add(other.cards[c]);
+        }
+    }
+}
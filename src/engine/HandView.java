@@ -0,0 +1,10 @@
+package engine;
+
+import card.CardSet;
+
+// Read-only access to the card IDs in a hand, whether it belongs to a headless game or to the display
+public interface HandView {
+    int count();
+    int cardAt(int c);
+    CardSet cardSet();
+}
@@ -0,0 +1,99 @@
+package engine;
+
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+/*
+ *   Finds the best move for a hint. Every legal move (with each color for a wild card) is tried in turn from a fresh
+ * random guess at the hidden cards and played out at random, and the move that wins the most of its playouts is
+ * recommended. Unlike the computer's strategies, the search can be cancelled at any time, since a hint is no longer
+ * needed once the player has acted.
+ */
+public final class HintSearch {
+    private final long budget;
+    private final Determinizer root = new Determinizer();
+    private SearchState state;
+    private int[] order = new int[0];
+
+    private final int[] moves = new int[SearchState.MAX_MOVES];
+    private final int[] candidates = new int[SearchState.MAX_MOVES];
+    private final int[] wins = new int[SearchState.MAX_MOVES];
+    private final int[] playouts = new int[SearchState.MAX_MOVES];
+    private int candidateCount;
+    private int best;
+
+    public HintSearch(long millis) {
+        budget = millis*1_000_000;
+    }
+
+    // Returns the best Move, or Move.DRAW if the search was cancelled before it could try anything
+    public int search(GameView view, BooleanSupplier cancelled) {
+        root.load(view);
+        if (state == null || state.seats() != root.seats() || state.getRules() != root.rules()) {
+            state = new SearchState(root.seats(), root.rules());
+        }
+        if (order.length < root.unseenCount()) {
+            order = new int[root.unseenCount()];
+        }
+        SplittableRandom random = view.random();
+        root.deal(state, random, order);
+        candidateCount = 0;
+        int n = state.generateMoves(moves);
+        for (int i = 0; i < n; i++) {
+            // Other seats jumping in aren't this seat's to choose
+            if (!SearchState.isJumpIn(moves[i])) {
+                candidates[candidateCount++] = moves[i];
+            }
+        }
+        for (int i = 0; i < candidateCount; i++) {
+            wins[i] = 0;
+            playouts[i] = 0;
+        }
+        best = 0;
+        if (candidateCount == 1) {
+            return root.toMove(view.hand(), candidates[0]);
+        }
+
+        long deadline = System.nanoTime() + budget;
+        boolean tried = false;
+        while (!cancelled.getAsBoolean() && System.nanoTime() < deadline) {
+            for (int i = 0; i < candidateCount; i++) {
+                root.deal(state, random, order);
+                int move = legalVersion(candidates[i]);
+                state.makeMove(move);
+                if (Rollouts.play(state, moves, random) == root.seat()) {
+                    wins[i]++;
+                }
+                playouts[i]++;
+            }
+            tried = true;
+        }
+        if (!tried) {
+            return Move.DRAW;
+        }
+        for (int i = 1; i < candidateCount; i++) {
+            if ((long) wins[i]*playouts[best] > (long) wins[best]*playouts[i]) {
+                best = i;
+            }
+        }
+        return root.toMove(view.hand(), candidates[best]);
+    }
+
+    // How often the recommended move won its playouts in the last search
+    public double getWinRate() {
+        return playouts[best] == 0 ? 0 : (double) wins[best]/playouts[best];
+    }
+
+    // Drawing from a guess whose draw pile is empty becomes passing, and the other way around
+    private int legalVersion(int move) {
+        if (move == SearchState.DRAW || move == SearchState.PASS) {
+            int n = state.generateMoves(moves);
+            for (int i = 0; i < n; i++) {
+                if (moves[i] == SearchState.DRAW || moves[i] == SearchState.PASS) {
+                    return moves[i];
+                }
+            }
+        }
+        return move;
+    }
+}
@@ -0,0 +1,289 @@
+package engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ *   A stronger computer player using information set Monte Carlo tree search. The other hands and the order of the
+ * draw pile are hidden, so every playout starts by dealing a random guess at them (a determinization) that agrees with
+ * everything this seat can see. All of the guesses share one tree, so a move is judged by how well it does across
+ * every likely arrangement of the hidden cards instead of by what it would do if the computer could see them.
+ *
+ *   Each thread grows its own tree from the same root and the visits of the moves at the root are added together at
+ * the end. The search stops when the time budget for the move runs out.
+ *
+ *   The budget (in milliseconds) and the number of threads can be set with the uno.mcts.millis and uno.mcts.threads
+ * system properties.
+ */
+public final class MonteCarloPlayer implements Strategy {
+    public static final String NAME = "hard";
+
+    private static final double EXPLORATION = 0.7;
+    private static final int MAX_NODES = 1 << 16;
+    private static final int MAX_DEPTH = 128;
+
+    private final long budget;
+    private final Tree[] trees;
+
+    // The root of the search, which the trees only read from
+    private final Determinizer root = new Determinizer();
+
+    private long playouts = 0;
+    private long searchTime = 0;
+    private int treeSize = 0;
+
+    public MonteCarloPlayer() {
+        this(Long.getLong("uno.mcts.millis", 50),
+             Integer.getInteger("uno.mcts.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public MonteCarloPlayer(long millis, int threads) {
+        budget = millis*1_000_000;
+        trees = new Tree[Math.max(1, threads)];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new Tree();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    // Playouts per second over the last search
+    public double getPlayoutsPerSecond() {
+        return searchTime == 0 ? 0 : playouts*1e9/searchTime;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    // Nodes in all of the trees after the last search
+    public int getTreeSize() {
+        return treeSize;
+    }
+
+    @Override
+    public int decide(GameView view) {
+        root.load(view);
+        long start = System.nanoTime();
+        long deadline = start + budget;
+        SplittableRandom random = view.random();
+        for (Tree tree : trees) {
+            tree.start(random.split(), deadline);
+        }
+        Tree first = trees[0];
+        first.determinize();
+        int forced = onlyMove(first.moves, first.state.generateMoves(first.moves));
+        if (forced != -1) {
+            playouts = 0;
+            searchTime = 0;
+            treeSize = 0;
+            return root.toMove(view.hand(), forced);
+        }
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[trees.length-1];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = Strategies.searchPool().submit(trees[i+1]);
+        }
+        trees[0].run();
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        searchTime = System.nanoTime() - start;
+
+        playouts = 0;
+        treeSize = 0;
+        for (Tree tree : trees) {
+            playouts += tree.playouts;
+            treeSize += tree.size;
+        }
+        return root.toMove(view.hand(), bestMove());
+    }
+
+    // The seat's move if it only has one, not counting other seats jumping in before it moves
+    private static int onlyMove(int[] moves, int n) {
+        int only = -1;
+        for (int i = 0; i < n; i++) {
+            if (!SearchState.isJumpIn(moves[i])) {
+                if (only != -1) {
+                    return -1;
+                }
+                only = moves[i];
+            }
+        }
+        return only;
+    }
+
+    // The root move with the most visits over all of the trees (each tree may not have tried every move)
+    private int bestMove() {
+        int best = SearchState.DRAW;
+        int bestVisits = -1;
+        for (Tree root : trees) {
+            for (int child = root.firstChild[0]; child != -1; child = root.nextSibling[child]) {
+                int move = root.move[child];
+                if (SearchState.isJumpIn(move)) {
+                    // Another seat's move, which the search only tries to see what it would do to this one
+                    continue;
+                }
+                int visits = 0;
+                for (Tree tree : trees) {
+                    visits += tree.rootVisits(move);
+                }
+                if (visits > bestVisits) {
+                    best = move;
+                    bestVisits = visits;
+                }
+            }
+        }
+        return best;
+    }
+
+    /*
+     *   A search tree stored in parallel arrays. Node 0 is the root. A node is the position after its move was made
+     * by its seat, and its wins count the playouts that seat went on to win. Since a move is not legal in every
+     * determinization, a child also counts how many times it was available to be chosen, which takes the place of
+     * the visits of the parent when choosing between children.
+     */
+    private final class Tree implements Runnable {
+        final int[] move = new int[MAX_NODES];
+        final int[] mover = new int[MAX_NODES];
+        final int[] firstChild = new int[MAX_NODES];
+        final int[] nextSibling = new int[MAX_NODES];
+        final int[] visits = new int[MAX_NODES];
+        final int[] available = new int[MAX_NODES];
+        final float[] wins = new float[MAX_NODES];
+        int size;
+
+        SearchState state;
+        final int[] moves = new int[SearchState.MAX_MOVES];
+        final int[] children = new int[SearchState.MAX_MOVES];
+        final int[] path = new int[MAX_DEPTH];
+        int[] order = new int[0];
+
+        SplittableRandom random;
+        long deadline;
+        long playouts;
+
+        void start(SplittableRandom random, long deadline) {
+            if (state == null || state.seats() != root.seats() || state.getRules() != root.rules()) {
+                state = new SearchState(root.seats(), root.rules());
+            }
+            if (order.length < root.unseenCount()) {
+                order = new int[root.unseenCount()];
+            }
+            this.random = random;
+            this.deadline = deadline;
+            playouts = 0;
+            size = 1;
+            mover[0] = -1;
+            firstChild[0] = -1;
+            visits[0] = 0;
+        }
+
+        int rootVisits(int rootMove) {
+            for (int child = firstChild[0]; child != -1; child = nextSibling[child]) {
+                if (move[child] == rootMove) {
+                    return visits[child];
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public void run() {
+            // There is always at least one playout, so the root is never left without any children
+            do {
+                playout();
+                playouts++;
+            } while (System.nanoTime() < deadline);
+        }
+
+        private void playout() {
+            determinize();
+            int depth = 0;
+            int node = 0;
+            path[depth++] = node;
+            for (int plies = 0; !state.isOver() && depth < MAX_DEPTH && plies < Rollouts.MAX_PLIES; plies++) {
+                int n = state.generateMoves(moves);
+                if (n == 1 && node != 0) {
+                    // Forced moves don't need a node of their own
+                    state.makeMove(moves[0]);
+                    continue;
+                }
+                int untried = 0;
+                int legal = 0;
+                for (int i = 0; i < n; i++) {
+                    int child = findChild(node, moves[i]);
+                    if (child == -1) {
+                        moves[untried++] = moves[i];
+                    } else {
+                        available[child]++;
+                        children[legal++] = child;
+                    }
+                }
+                if (untried != 0) {
+                    int m = moves[random.nextInt(untried)];
+                    if (size < MAX_NODES) {
+                        path[depth++] = addChild(node, m);
+                    }
+                    state.makeMove(m);
+                    break;
+                }
+                node = select(legal);
+                path[depth++] = node;
+                state.makeMove(move[node]);
+            }
+            int winner = Rollouts.play(state, moves, random);
+            for (int i = 0; i < depth; i++) {
+                int n = path[i];
+                visits[n]++;
+                if (mover[n] == winner) {
+                    wins[n]++;
+                }
+            }
+        }
+
+        void determinize() {
+            root.deal(state, random, order);
+        }
+
+        private int findChild(int node, int m) {
+            for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                if (move[child] == m) {
+                    return child;
+                }
+            }
+            return -1;
+        }
+
+        private int addChild(int node, int m) {
+            int child = size++;
+            move[child] = m;
+            mover[child] = SearchState.isJumpIn(m) ? SearchState.jumpInSeat(m) : state.getTurn();
+            firstChild[child] = -1;
+            nextSibling[child] = firstChild[node];
+            firstChild[node] = child;
+            visits[child] = 0;
+            available[child] = 1;
+            wins[child] = 0;
+            return child;
+        }
+
+        // Upper confidence bound over the children that are legal in this determinization
+        private int select(int legal) {
+            int best = children[0];
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < legal; i++) {
+                int child = children[i];
+                double score = wins[child]/visits[child]
+                        + EXPLORATION*Math.sqrt(Math.log(available[child])/visits[child]);
+                if (score > bestScore) {
+                    best = child;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package engine;
+
+import card.UnoCard;
+
+/*
+ *   A decision made on a turn, packed into an int: either playing the card at an index of the hand (with a color if
+ * it is a wild card), drawing a card, or finishing the turn after drawing.
+ */
+public final class Move {
+    private Move() {}
+
+    public static final int DRAW = -1;
+    public static final int FINISH = -2;
+
+    public static int play(int c, int color) {
+        return c | (color+1) << 16;
+    }
+
+    public static boolean isPlay(int move) {
+        return move >= 0;
+    }
+
+    public static int index(int move) {
+        return move & 0xFFFF;
+    }
+
+    public static int color(int move) {
+        return (move >>> 16) - 1;
+    }
+
+    // Plays the move on a headless game, using the decision's color or NO_COLOR for normal cards
+    public static void apply(GameEngine engine, int move) {
+        if (move == DRAW) {
+            engine.draw();
+        } else if (move == FINISH) {
+            engine.finishTurn();
+        } else {
+            engine.play(index(move), color(move));
+        }
+    }
+
+    public static String toString(int move) {
+        if (move == DRAW) {
+            return "draw";
+        } else if (move == FINISH) {
+            return "finish";
+        } else if (color(move) == UnoCard.NO_COLOR) {
+            return "play("+index(move)+")";
+        } else {
+            return "play("+index(move)+", color "+color(move)+")";
+        }
+    }
+}
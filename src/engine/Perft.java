@@ -0,0 +1,202 @@
+package engine;
+
+import card.UnoCard;
+import manager.Deal;
+import manager.DeckManager;
+import manager.GameRandom;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ *   Counts every legal move sequence from a position to a fixed depth, like perft for chess engines. The counts only
+ * depend on the rules, so they can be compared before and after changing the engine, and the time taken is a
+ * benchmark for move generation and make/unmake.
+ *
+ *   Usage: java engine.Perft [options]
+ *     -depth N            search depth (default 6)
+ *     -parallel           split the search across a fork-join pool
+ *     -divide             print the count for each move from the position
+ *     -seed N             deal the position from a seed (default 0)
+ *     -top CARD           set the top of the deck, like "5r" or "Wg"
+ *     -player CARDS       set the hand of the player to move, like "5r Dr sb"
+ *     -opponent CARDS     set the other hand
+ *     -deck CARDS         set the draw pile, in the order it will be drawn
+ *     -rules VARIANTS     enable house rules, like "stacking,seven-o,jump-in"
+ *     -seats N            deal the position for more than two seats
+ */
+public final class Perft {
+    private Perft() {}
+
+    // A parallel search forks a task for every move this many plies from the root, and searches below that sequentially
+    private static final int PARALLEL_PLIES = 2;
+
+    public static long perft(SearchState state, int depth) {
+        return perft(state, depth, new int[depth+1][SearchState.MAX_MOVES]);
+    }
+
+    private static long perft(SearchState state, int depth, int[][] moveStack) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] moves = moveStack[depth];
+        int n = state.generateMoves(moves);
+        if (depth == 1) {
+            return n;
+        }
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            state.makeMove(moves[i]);
+            nodes += perft(state, depth-1, moveStack);
+            state.unmakeMove();
+        }
+        return nodes;
+    }
+
+    public static long parallelPerft(SearchState state, int depth, ForkJoinPool pool) {
+        SearchState copy = new SearchState(state.seats(), state.getRules());
+        copy.copyFrom(state);
+        return pool.invoke(new PerftTask(copy, depth, PARALLEL_PLIES));
+    }
+
+    private static final class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final SearchState state;
+        private final int depth;
+        private final int plies;
+
+        PerftTask(SearchState state, int depth, int plies) {
+            this.state = state;
+            this.depth = depth;
+            this.plies = plies;
+        }
+
+        @Override
+        protected Long compute() {
+            // Leaves are counted without making their moves, so there's nothing to gain from splitting right above them
+            if (plies == 0 || depth <= 1) {
+                return perft(state, depth);
+            }
+            int[] moves = new int[SearchState.MAX_MOVES];
+            int n = state.generateMoves(moves);
+            PerftTask[] tasks = new PerftTask[n];
+            for (int i = 0; i < n; i++) {
+                SearchState child = new SearchState(state.seats(), state.getRules());
+                child.copyFrom(state);
+                child.makeMove(moves[i]);
+                tasks[i] = new PerftTask(child, depth-1, plies-1);
+                tasks[i].fork();
+            }
+            long nodes = 0;
+            for (int i = n-1; i >= 0; i--) {
+                nodes += tasks[i].join();
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        int depth = 6;
+        boolean parallel = false;
+        boolean divide = false;
+        long seed = 0;
+        String top = null;
+        String player = null;
+        String opponent = null;
+        String deck = null;
+        Rules rules = Rules.STANDARD;
+        int seats = 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-depth":
+                depth = Integer.parseInt(args[++i]);
+                break;
+            case "-parallel":
+                parallel = true;
+                break;
+            case "-divide":
+                divide = true;
+                break;
+            case "-seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "-top":
+                top = args[++i];
+                break;
+            case "-player":
+                player = args[++i];
+                break;
+            case "-opponent":
+                opponent = args[++i];
+                break;
+            case "-deck":
+                deck = args[++i];
+                break;
+            case "-rules":
+                rules = Rules.parse(args[++i]);
+                break;
+            case "-seats":
+                seats = Integer.parseInt(args[++i]);
+                break;
+            default:
+                System.err.println("Unknown option: "+args[i]);
+                System.exit(1);
+            }
+        }
+
+        SearchState state = new SearchState(seats, rules);
+        GameRandom random = new GameRandom(seed);
+        GameState dealt = seats == 2 ? new GameState(new Deal(random), true) : new GameState(seats, random, 0);
+        state.load(dealt, new SplittableRandom(seed));
+        if (top != null || player != null || opponent != null || deck != null) {
+            if (seats != 2) {
+                System.err.println("Positions can only be given for two seats");
+                System.exit(1);
+            }
+            SearchState loaded = state;
+            state = new SearchState(2, rules);
+            state.setTopOfDeck(top == null ? loaded.getTopOfDeck() : UnoCard.decodeId(top));
+            setHand(state, GameState.PLAYER, player, loaded);
+            setHand(state, GameState.OPPONENT, opponent, loaded);
+            if (deck != null) {
+                int[] order = DeckManager.loadCardIds(deck);
+                state.setDeck(order, order.length);
+            }
+            state.setTurn(GameState.PLAYER, false);
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (divide) {
+            int[] moves = new int[SearchState.MAX_MOVES];
+            int n = state.generateMoves(moves);
+            for (int i = 0; i < n; i++) {
+                state.makeMove(moves[i]);
+                long nodes = parallel ? parallelPerft(state, depth-1, pool) : perft(state, depth-1);
+                state.unmakeMove();
+                System.out.printf("%s: %d%n", SearchState.moveToString(moves[i]), nodes);
+            }
+        }
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long nodes = parallel ? parallelPerft(state, d, pool) : perft(state, d);
+            long time = System.nanoTime() - start;
+            System.out.printf("perft(%d) = %,d (%.3f s, %,.0f nodes/s)%n", d, nodes, time/1e9, nodes*1e9/Math.max(1, time));
+        }
+    }
+
+    private static void setHand(SearchState state, int seat, String cards, SearchState dealt) {
+        if (cards == null) {
+            for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+                for (int n = dealt.count(seat, id); n > 0; n--) {
+                    state.addToHand(seat, id);
+                }
+            }
+        } else {
+            for (int id : DeckManager.loadCardIds(cards)) {
+                state.addToHand(seat, id);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package engine;
+
+import card.CardSet;
+import card.UnoCard;
+
+import java.util.SplittableRandom;
+
+// The random playouts that the Monte Carlo searches use to guess how a position will turn out
+final class Rollouts {
+    private Rollouts() {}
+
+    static final int MAX_PLIES = 300;
+
+    // Plays randomly (but never draws when a card can be played) and returns the winner, or the seat the evaluator
+    // likes best if the game goes on for too long
+    static int play(SearchState state, int[] moves, SplittableRandom random) {
+        for (int plies = 0; !state.isOver() && plies < MAX_PLIES; plies++) {
+            long playable = state.playable();
+            if (playable == 0) {
+                int n = state.generateMoves(moves);
+                state.makeMove(moves[random.nextInt(n)]);
+                continue;
+            }
+            int count = Long.bitCount(playable);
+            for (int i = random.nextInt(count); i > 0; i--) {
+                playable &= playable - 1;
+            }
+            int id = Long.numberOfTrailingZeros(playable);
+            state.makeMove(SearchState.play(id, bestColor(state.handMask(state.getTurn()))));
+        }
+        if (state.isOver()) {
+            return state.getWinner();
+        }
+        Evaluator evaluator = Evaluator.get();
+        int winner = 0;
+        float best = evaluator.evaluate(state, 0);
+        for (int s = 1; s < state.seats(); s++) {
+            float score = evaluator.evaluate(state, s);
+            if (score > best) {
+                winner = s;
+                best = score;
+            }
+        }
+        return winner;
+    }
+
+    private static int bestColor(long handMask) {
+        int best = UnoCard.COLOR_MIN;
+        int bestCount = -1;
+        for (int color = UnoCard.COLOR_MIN; color <= UnoCard.COLOR_MAX; color++) {
+            int count = Long.bitCount(handMask & CardSet.colorMask(color));
+            if (count > bestCount) {
+                best = color;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+}
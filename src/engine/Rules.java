@@ -0,0 +1,148 @@
+package engine;
+
+import card.CardSet;
+import card.UnoCard;
+import card.WildCard;
+
+/*
+ *   A set of house rules compiled into lookup tables, so that checking what can be played and what a card does costs
+ * the same no matter which variants are enabled. STANDARD has exactly the rules of the normal game.
+ *
+ *   STACKING:  a draw two or draw four can be answered with another draw card instead of drawing, passing the
+ *              combined penalty on to the next player
+ *   SEVEN_O:   playing a 7 swaps hands with the next player and playing a 0 passes every hand to the next player
+ *   JUMP_IN:   a player holding a card identical to the top of the deck may play it out of turn
+ */
+public final class Rules {
+    public static final int STACKING = 1;
+    public static final int SEVEN_O = 2;
+    public static final int JUMP_IN = 4;
+
+    private static final int VARIANT_COUNT = 3;
+    private static final String[] VARIANT_NAMES = {"stacking", "seven-o", "jump-in"};
+    // Every variant at once, so any other bits in a set of variants (such as one read from a file) are unknown
+    public static final int ALL = (1 << VARIANT_COUNT) - 1;
+
+    // Each action is the number of cards drawn by the next player along with these flags
+    static final int DRAWS_MASK = 15;
+    static final int SKIP = 16;
+    static final int STACK = 32;
+    static final int SWAP_HANDS = 64;
+    static final int ROTATE_HANDS = 128;
+    // With more than two seats, a reverse changes direction instead of skipping
+    static final int REVERSE = 256;
+
+    private static final Rules[] COMPILED = new Rules[1 << VARIANT_COUNT];
+
+    public static final Rules STANDARD = of(0);
+
+    final int variants;
+    final long[] playableOn = new long[UnoCard.ID_COUNT];
+    final long[] stackableOn = new long[UnoCard.ID_COUNT];
+    final long[] jumpInOn = new long[UnoCard.ID_COUNT];
+    final int[] actions = new int[UnoCard.ID_COUNT];
+    final boolean hasJumpIn;
+
+    private Rules(int variants) {
+        this.variants = variants;
+        hasJumpIn = (variants & JUMP_IN) != 0;
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            UnoCard card = UnoCard.fromId(id);
+            int action = card.cardDraws();
+            if (card.isSkip()) {
+                action |= SKIP;
+            }
+            if (card.isReverse()) {
+                action |= REVERSE;
+            }
+            if ((variants & STACKING) != 0 && card.cardDraws() != 0) {
+                // The penalty is passed on instead of drawn immediately, so the next player isn't skipped yet
+                action = card.cardDraws() | STACK;
+            }
+            if ((variants & SEVEN_O) != 0 && card.isNumeric()) {
+                if (card.getNumberCode() == 7) {
+                    action |= SWAP_HANDS;
+                } else if (card.getNumberCode() == 0) {
+                    action |= ROTATE_HANDS;
+                }
+            }
+            actions[id] = action;
+            playableOn[id] = CardSet.playableOn(id);
+        }
+        for (int top = 0; top < UnoCard.ID_COUNT; top++) {
+            UnoCard topOfDeck = UnoCard.fromId(top);
+            if ((variants & STACKING) != 0) {
+                for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+                    UnoCard card = UnoCard.fromId(id);
+                    // Anything can be stacked with a draw four, but only a draw four can be stacked on one
+                    boolean stacks = card.cardDraws() >= topOfDeck.cardDraws() && topOfDeck.cardDraws() != 0;
+                    if (stacks && (card instanceof WildCard || topOfDeck instanceof WildCard || card.canPlayOn(topOfDeck))) {
+                        stackableOn[top] |= 1L << id;
+                    }
+                }
+            }
+            if (hasJumpIn && !(topOfDeck instanceof WildCard)) {
+                jumpInOn[top] = 1L << top;
+            }
+        }
+    }
+
+    public static Rules of(int variants) {
+        if ((variants & ~ALL) != 0) {
+            throw new IllegalArgumentException("unknown rule variants: "+variants);
+        }
+        synchronized (COMPILED) {
+            if (COMPILED[variants] == null) {
+                COMPILED[variants] = new Rules(variants);
+            }
+            return COMPILED[variants];
+        }
+    }
+
+    // Parses a comma separated list of variant names, like "stacking,jump-in"
+    public static Rules parse(String names) {
+        int variants = 0;
+        for (String name : names.split(",")) {
+            if (name.isEmpty() || name.equals("standard")) {
+                continue;
+            }
+            int variant = -1;
+            for (int i = 0; i < VARIANT_COUNT; i++) {
+                if (VARIANT_NAMES[i].equals(name)) {
+                    variant = 1 << i;
+                }
+            }
+            if (variant == -1) {
+                throw new IllegalArgumentException("unknown rule variant: "+name);
+            }
+            variants |= variant;
+        }
+        return of(variants);
+    }
+
+    public boolean has(int variant) {
+        return (variants & variant) != 0;
+    }
+
+    // The variants as bits, which of turns back into the same rules
+    public int getVariants() {
+        return variants;
+    }
+
+    @Override
+    public String toString() {
+        if (variants == 0) {
+            return "standard";
+        }
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < VARIANT_COUNT; i++) {
+            if ((variants & 1 << i) != 0) {
+                if (names.length() != 0) {
+                    names.append(',');
+                }
+                names.append(VARIANT_NAMES[i]);
+            }
+        }
+        return names.toString();
+    }
+}
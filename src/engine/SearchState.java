@@ -0,0 +1,532 @@
+package engine;
+
+import card.DrawPile;
+import card.UnoCard;
+import card.WildCard;
+
+import java.util.SplittableRandom;
+
+/*
+ *   A mutable game position for look-ahead search. Moves are applied with makeMove and taken back with unmakeMove,
+ * which restores the position exactly from an undo stack of primitive arrays, so searching never allocates.
+ *
+ *   Unlike GameState, the order of the draw pile is known (or has been sampled), and the discard pile is never
+ * reshuffled: once the draw pile runs out, players can only play or pass.
+ *
+ *   A move is packed into an int: the card ID and chosen color of a played card (and, for jumping in, the seat playing
+ * it), or one of DRAW and PASS. Which moves are legal and what they do comes from the Rules tables.
+ */
+public final class SearchState {
+    public static final int DRAW = 1 << 8;
+    public static final int PASS = 2 << 8;
+    private static final int JUMP_IN = 4 << 8;
+    private static final int SEAT_SHIFT = 11;
+
+    public static final int MAX_SEATS = 16;
+    public static final int MAX_MOVES = UnoCard.ID_COUNT + 3*(UnoCard.COLOR_MAX+1) + 2 + MAX_SEATS;
+
+    static final boolean[] IS_WILD = new boolean[UnoCard.ID_COUNT];
+    private static final int[] COLORED = new int[UnoCard.ID_COUNT*(UnoCard.COLOR_MAX+1)];
+
+    // Zobrist keys: a hand hashes to the sum of the keys of its cards, so adding and removing cards is O(1)
+    private static final long[] CARD_KEYS = new long[UnoCard.ID_COUNT];
+    private static final long[] SEAT_KEYS = new long[MAX_SEATS];
+    private static final long[] TOP_KEYS = new long[UnoCard.ID_COUNT];
+    private static final long[] TURN_KEYS = new long[MAX_SEATS];
+    private static final long DRAWN_KEY;
+    private static final long REVERSED_KEY;
+    private static final long DECK_KEY;
+    private static final long PENDING_KEY;
+
+    private final int seats;
+    private final Rules rules;
+    private final int[] actions;
+    private final long[] playableOn;
+
+    // counts[seat*ID_COUNT + id] is the number of copies of a card in a hand
+    private final int[] counts;
+    private final long[] masks;
+    private final int[] handSizes;
+    private final long[] handHashes;
+
+    private int[] deck = new int[0];
+    private int deckSize = 0;
+    private int deckPos = 0;
+
+    private int topOfDeck;
+    private int turn;
+    private int direction = 1;
+    private boolean hasDrawn;
+    private int winner = GameState.NO_WINNER;
+    private int pendingDraws = 0;
+
+    private int[] undoMoves = new int[256];
+    private int[] undoInfo = new int[256];
+    private int[] undoDeckPos = new int[256];
+    private int ply = 0;
+
+    public SearchState(int seats) {
+        this(seats, Rules.STANDARD);
+    }
+
+    public SearchState(int seats, Rules rules) {
+        if (seats > MAX_SEATS) {
+            throw new IllegalArgumentException("error: at most "+MAX_SEATS+" seats are supported");
+        }
+        this.seats = seats;
+        this.rules = rules;
+        actions = rules.actions;
+        playableOn = rules.playableOn;
+        counts = new int[seats*UnoCard.ID_COUNT];
+        masks = new long[seats];
+        handSizes = new int[seats];
+        handHashes = new long[seats];
+    }
+
+    public static int play(int id, int color) {
+        return IS_WILD[id] ? id | color << 6 : id;
+    }
+
+    public static boolean isPlay(int move) {
+        return (move & (DRAW | PASS)) == 0;
+    }
+
+    public static boolean isJumpIn(int move) {
+        return (move & JUMP_IN) != 0;
+    }
+
+    public static int jumpInSeat(int move) {
+        return move >>> SEAT_SHIFT;
+    }
+
+    public static int moveCard(int move) {
+        return move & 63;
+    }
+
+    public static int moveColor(int move) {
+        return IS_WILD[move & 63] ? move >>> 6 & 3 : UnoCard.NO_COLOR;
+    }
+
+    public static String moveToString(int move) {
+        if (move == DRAW) {
+            return "draw";
+        } else if (move == PASS) {
+            return "pass";
+        }
+        UnoCard card = UnoCard.fromId(moveCard(move));
+        if (isJumpIn(move)) {
+            return "jump("+jumpInSeat(move)+") "+card.encode();
+        }
+        return IS_WILD[card.getId()] ? card.withColor(moveColor(move)).encode() : card.encode();
+    }
+
+    public void clear() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        for (int seat = 0; seat < seats; seat++) {
+            masks[seat] = 0;
+            handSizes[seat] = 0;
+            handHashes[seat] = 0;
+        }
+        deckSize = 0;
+        deckPos = 0;
+        direction = 1;
+        hasDrawn = false;
+        winner = GameState.NO_WINNER;
+        pendingDraws = 0;
+        ply = 0;
+    }
+
+    // Copies the position (but not the moves that led to it) from another state with the same number of seats
+    public void copyFrom(SearchState other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        System.arraycopy(other.masks, 0, masks, 0, seats);
+        System.arraycopy(other.handSizes, 0, handSizes, 0, seats);
+        System.arraycopy(other.handHashes, 0, handHashes, 0, seats);
+        setDeck(other.deck, other.deckSize);
+        deckPos = other.deckPos;
+        topOfDeck = other.topOfDeck;
+        turn = other.turn;
+        direction = other.direction;
+        hasDrawn = other.hasDrawn;
+        winner = other.winner;
+        pendingDraws = other.pendingDraws;
+        ply = 0;
+    }
+
+    public void addToHand(int seat, int id) {
+        counts[seat*UnoCard.ID_COUNT+id]++;
+        masks[seat] |= 1L << id;
+        handSizes[seat]++;
+        handHashes[seat] += CARD_KEYS[id];
+    }
+
+    private void removeFromHand(int seat, int id) {
+        int index = seat*UnoCard.ID_COUNT+id;
+        if (--counts[index] == 0) {
+            masks[seat] &= ~(1L << id);
+        }
+        handSizes[seat]--;
+        handHashes[seat] -= CARD_KEYS[id];
+    }
+
+    // The deck is given in the order it will be drawn
+    public void setDeck(int[] order, int size) {
+        setDeck(order, 0, size);
+    }
+
+    public void setDeck(int[] order, int offset, int size) {
+        if (deck.length < size) {
+            deck = new int[size];
+        }
+        System.arraycopy(order, offset, deck, 0, size);
+        deckSize = size;
+        deckPos = 0;
+    }
+
+    public void setTopOfDeck(int topOfDeck) {
+        this.topOfDeck = topOfDeck;
+    }
+
+    public void setTurn(int turn, boolean hasDrawn) {
+        this.turn = turn;
+        this.hasDrawn = hasDrawn;
+    }
+
+    public void setDirection(int direction) {
+        this.direction = direction;
+    }
+
+    public void setPendingDraws(int pendingDraws) {
+        this.pendingDraws = pendingDraws;
+    }
+
+    // Copies a game, sampling an order for its draw pile
+    public void load(GameState state, SplittableRandom random) {
+        clear();
+        for (int seat = 0; seat < seats; seat++) {
+            Hand hand = state.getHand(seat);
+            for (int c = 0; c < hand.size(); c++) {
+                addToHand(seat, hand.get(c));
+            }
+        }
+        DrawPile pile = new DrawPile();
+        pile.copyFrom(state.getDeck());
+        int[] order = new int[pile.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = pile.draw(random).getId();
+        }
+        setDeck(order, order.length);
+        topOfDeck = state.getTopOfDeck();
+        turn = state.getTurn();
+        direction = state.getDirection();
+        hasDrawn = state.hasDrawn();
+        winner = state.getWinner();
+        pendingDraws = state.getPendingDraws();
+    }
+
+    public int seats() {
+        return seats;
+    }
+
+    public int count(int seat, int id) {
+        return counts[seat*UnoCard.ID_COUNT+id];
+    }
+
+    public long handMask(int seat) {
+        return masks[seat];
+    }
+
+    public int handSize(int seat) {
+        return handSizes[seat];
+    }
+
+    public int deckRemaining() {
+        return deckSize - deckPos;
+    }
+
+    public int getTopOfDeck() {
+        return topOfDeck;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public int getDirection() {
+        return direction;
+    }
+
+    public boolean hasDrawn() {
+        return hasDrawn;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isOver() {
+        return winner != GameState.NO_WINNER;
+    }
+
+    public int getPendingDraws() {
+        return pendingDraws;
+    }
+
+    public Rules getRules() {
+        return rules;
+    }
+
+    public int ply() {
+        return ply;
+    }
+
+    // A hash of everything that decides how the game can go on from here (the deck itself is assumed to be fixed)
+    public long hash() {
+        long hash = TOP_KEYS[topOfDeck] ^ TURN_KEYS[turn] ^ deckPos*DECK_KEY ^ pendingDraws*PENDING_KEY;
+        if (hasDrawn) {
+            hash ^= DRAWN_KEY;
+        }
+        if (direction < 0) {
+            hash ^= REVERSED_KEY;
+        }
+        for (int seat = 0; seat < seats; seat++) {
+            hash ^= mix(handHashes[seat] + SEAT_KEYS[seat]);
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long playable() {
+        if (pendingDraws != 0) {
+            return masks[turn] & rules.stackableOn[topOfDeck];
+        }
+        return masks[turn] & playableOn[topOfDeck];
+    }
+
+    // Fills moves with every legal move and returns how many there are (moves must hold at least MAX_MOVES)
+    public int generateMoves(int[] moves) {
+        if (isOver()) {
+            return 0;
+        }
+        int n = 0;
+        long playable = playable();
+        while (playable != 0) {
+            int id = Long.numberOfTrailingZeros(playable);
+            playable &= playable - 1;
+            if (IS_WILD[id]) {
+                for (int color = UnoCard.COLOR_MIN; color <= UnoCard.COLOR_MAX; color++) {
+                    moves[n++] = id | color << 6;
+                }
+            } else {
+                moves[n++] = id;
+            }
+        }
+        if (pendingDraws != 0 || !hasDrawn && deckPos < deckSize) {
+            moves[n++] = DRAW;
+        } else {
+            moves[n++] = PASS;
+        }
+        if (rules.hasJumpIn && pendingDraws == 0) {
+            long jumpIn = rules.jumpInOn[topOfDeck];
+            for (int seat = 0; seat < seats; seat++) {
+                if (seat != turn && (masks[seat] & jumpIn) != 0) {
+                    moves[n++] = topOfDeck | JUMP_IN | seat << SEAT_SHIFT;
+                }
+            }
+        }
+        return n;
+    }
+
+    private int nextSeat() {
+        return seatAfter(turn);
+    }
+
+    private int seatAfter(int seat) {
+        int next = seat + direction;
+        if (next == seats) {
+            return 0;
+        } else if (next < 0) {
+            return seats-1;
+        }
+        return next;
+    }
+
+    public void makeMove(int move) {
+        if (ply == undoMoves.length) {
+            growUndo();
+        }
+        undoMoves[ply] = move;
+        undoInfo[ply] = topOfDeck | (hasDrawn ? 1 << 6 : 0) | turn << 7 | (winner+1) << 12 | pendingDraws << 18
+                | (direction < 0 ? 1 << 31 : 0);
+        undoDeckPos[ply] = deckPos;
+        ply++;
+        if (move == DRAW) {
+            if (pendingDraws != 0) {
+                for (int i = pendingDraws; i > 0 && deckPos < deckSize; i--) {
+                    addToHand(turn, deck[deckPos++]);
+                }
+                pendingDraws = 0;
+                turn = nextSeat();
+                hasDrawn = false;
+            } else {
+                addToHand(turn, deck[deckPos++]);
+                hasDrawn = true;
+            }
+        } else if (move == PASS) {
+            turn = nextSeat();
+            hasDrawn = false;
+        } else {
+            if ((move & JUMP_IN) != 0) {
+                turn = move >>> SEAT_SHIFT;
+            }
+            int id = move & 63;
+            removeFromHand(turn, id);
+            topOfDeck = IS_WILD[id] ? COLORED[id << 2 | move >>> 6 & 3] : id;
+            int action = actions[id];
+            if (handSizes[turn] == 0) {
+                winner = turn;
+                return;
+            }
+            if ((action & (Rules.SWAP_HANDS | Rules.ROTATE_HANDS)) != 0) {
+                if ((action & Rules.SWAP_HANDS) != 0) {
+                    swapHands(turn, nextSeat());
+                } else {
+                    rotateHands(direction > 0);
+                }
+            }
+            if ((action & Rules.REVERSE) != 0 && seats > 2) {
+                direction = -direction;
+                turn = nextSeat();
+                hasDrawn = false;
+            } else if ((action & Rules.SKIP) != 0) {
+                int target = nextSeat();
+                for (int i = action & Rules.DRAWS_MASK; i > 0 && deckPos < deckSize; i--) {
+                    addToHand(target, deck[deckPos++]);
+                }
+                turn = seatAfter(target);
+                hasDrawn = false;
+            } else {
+                if ((action & Rules.STACK) != 0) {
+                    pendingDraws += action & Rules.DRAWS_MASK;
+                }
+                turn = nextSeat();
+                hasDrawn = false;
+            }
+        }
+    }
+
+    public void unmakeMove() {
+        ply--;
+        int move = undoMoves[ply];
+        int info = undoInfo[ply];
+        int oldDeckPos = undoDeckPos[ply];
+        boolean won = winner != GameState.NO_WINNER;
+        topOfDeck = info & 63;
+        hasDrawn = (info & 1 << 6) != 0;
+        int oldTurn = info >>> 7 & 31;
+        winner = (info >>> 12 & 63) - 1;
+        pendingDraws = info >>> 18 & 0x1FFF;
+        direction = info < 0 ? -1 : 1;
+        if (move == DRAW) {
+            turn = oldTurn;
+            for (int i = oldDeckPos; i < deckPos; i++) {
+                removeFromHand(turn, deck[i]);
+            }
+        } else if (move == PASS) {
+            turn = oldTurn;
+        } else {
+            turn = (move & JUMP_IN) != 0 ? move >>> SEAT_SHIFT : oldTurn;
+            int id = move & 63;
+            int target = nextSeat();
+            for (int i = oldDeckPos; i < deckPos; i++) {
+                removeFromHand(target, deck[i]);
+            }
+            int action = actions[id];
+            if (!won && (action & (Rules.SWAP_HANDS | Rules.ROTATE_HANDS)) != 0) {
+                if ((action & Rules.SWAP_HANDS) != 0) {
+                    swapHands(turn, target);
+                } else {
+                    rotateHands(direction < 0);
+                }
+            }
+            addToHand(turn, id);
+            turn = oldTurn;
+        }
+        deckPos = oldDeckPos;
+    }
+
+    private void swapHands(int a, int b) {
+        int offsetA = a*UnoCard.ID_COUNT;
+        int offsetB = b*UnoCard.ID_COUNT;
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            int count = counts[offsetA+id];
+            counts[offsetA+id] = counts[offsetB+id];
+            counts[offsetB+id] = count;
+        }
+        long mask = masks[a];
+        masks[a] = masks[b];
+        masks[b] = mask;
+        int size = handSizes[a];
+        handSizes[a] = handSizes[b];
+        handSizes[b] = size;
+        long hash = handHashes[a];
+        handHashes[a] = handHashes[b];
+        handHashes[b] = hash;
+    }
+
+    // Passes every hand to the seat with the next number, or the previous number if not forward
+    private void rotateHands(boolean forward) {
+        if (forward) {
+            for (int seat = seats-1; seat > 0; seat--) {
+                swapHands(seat, seat-1);
+            }
+        } else {
+            for (int seat = 1; seat < seats; seat++) {
+                swapHands(seat, seat-1);
+            }
+        }
+    }
+
+    private void growUndo() {
+        int length = undoMoves.length*2;
+        int[] newMoves = new int[length];
+        int[] newInfo = new int[length];
+        int[] newDeckPos = new int[length];
+        System.arraycopy(undoMoves, 0, newMoves, 0, ply);
+        System.arraycopy(undoInfo, 0, newInfo, 0, ply);
+        System.arraycopy(undoDeckPos, 0, newDeckPos, 0, ply);
+        undoMoves = newMoves;
+        undoInfo = newInfo;
+        undoDeckPos = newDeckPos;
+    }
+
+    static {
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            UnoCard card = UnoCard.fromId(id);
+            IS_WILD[id] = card instanceof WildCard;
+            for (int color = UnoCard.COLOR_MIN; color <= UnoCard.COLOR_MAX; color++) {
+                COLORED[id << 2 | color] = card.withColor(color).getId();
+            }
+        }
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            CARD_KEYS[id] = random.nextLong();
+            TOP_KEYS[id] = random.nextLong();
+        }
+        for (int seat = 0; seat < MAX_SEATS; seat++) {
+            SEAT_KEYS[seat] = random.nextLong();
+            TURN_KEYS[seat] = random.nextLong();
+        }
+        DRAWN_KEY = random.nextLong();
+        REVERSED_KEY = random.nextLong();
+        DECK_KEY = random.nextLong() | 1;
+        PENDING_KEY = random.nextLong() | 1;
+    }
+}
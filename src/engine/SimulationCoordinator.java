@@ -0,0 +1,278 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ *   Splits a simulation across several worker processes (see SimulationWorker) so that a sweep isn't limited to one
+ * JVM. Every pair of strategies plays the same seeds, and the games for each pair are cut into shards of consecutive
+ * seeds that are handed out to whichever worker is free. Each shard is played exactly like a batch in Simulator, so
+ * the totals don't depend on how many workers there are or which of them played what.
+ *
+ *   If a worker disconnects or takes too long, its shard goes back in the queue for another worker, and workers that
+ * were started by the coordinator are started again.
+ *
+ *   Usage: java engine.SimulationCoordinator [-games N] [-seed N] [-shard N] [-workers N] [-port N]
+ *                                            [-pairs A:B,C:D...] [-timeout SECONDS]
+ *
+ *   The coordinator only listens on localhost. With -workers 0, it starts no workers itself and waits for them to
+ * connect.
+ */
+public final class SimulationCoordinator {
+    public static final int DEFAULT_PORT = 3109;
+
+    static final int PROTOCOL_VERSION = 1;
+    static final char MESSAGE_SEPARATOR = ':';
+
+    // Workers that crash are restarted, but a worker that can't start at all shouldn't be restarted forever
+    private static final int MAX_RESTARTS_PER_WORKER = 3;
+
+    private static final class Shard {
+        final int id;
+        final int pair;
+        final long seed;
+        final long games;
+
+        Shard(int id, int pair, long seed, long games) {
+            this.id = id;
+            this.pair = pair;
+            this.seed = seed;
+            this.games = games;
+        }
+    }
+
+    private final String[][] pairs;
+    private final Shard[] shards;
+    private final Simulator.Result[] results;
+    private final LinkedBlockingDeque<Shard> queue = new LinkedBlockingDeque<>();
+    private final CountDownLatch remaining;
+    private final int timeoutMillis;
+
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger reassigned = new AtomicInteger();
+
+    private SimulationCoordinator(String[][] pairs, long seed, long games, long shardSize, int timeoutMillis) {
+        this.pairs = pairs;
+        this.timeoutMillis = timeoutMillis;
+        long perPair = (games + shardSize - 1)/shardSize;
+        shards = new Shard[(int) (perPair*pairs.length)];
+        results = new Simulator.Result[shards.length];
+        int id = 0;
+        for (int pair = 0; pair < pairs.length; pair++) {
+            for (long start = 0; start < games; start += shardSize) {
+                shards[id] = new Shard(id, pair, seed+start, Math.min(shardSize, games-start));
+                queue.addLast(shards[id++]);
+            }
+        }
+        remaining = new CountDownLatch(shards.length);
+    }
+
+    static void write(PrintWriter output, String kind, String contents) {
+        output.println(contents == null ? kind : kind+MESSAGE_SEPARATOR+contents);
+        output.flush();
+    }
+
+    private void accept(ServerSocket server) {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            Thread thread = new Thread(() -> serve(socket));
+            thread.setName("simulationWorker");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // Feeds shards to one worker until there are none left or the worker fails
+    private void serve(Socket socket) {
+        Shard shard = null;
+        try (Socket s = socket;
+             BufferedReader input = new BufferedReader(new InputStreamReader(s.getInputStream()));
+             PrintWriter output = new PrintWriter(s.getOutputStream(), false)) {
+            s.setSoTimeout(timeoutMillis);
+            String version = input.readLine();
+            if (!("version"+MESSAGE_SEPARATOR+PROTOCOL_VERSION).equals(version)) {
+                System.err.println("Worker sent "+version+" instead of protocol version "+PROTOCOL_VERSION);
+                return;
+            }
+            connected.incrementAndGet();
+            try {
+                while (remaining.getCount() != 0) {
+                    shard = queue.pollFirst(100, TimeUnit.MILLISECONDS);
+                    if (shard == null) {
+                        continue;
+                    }
+                    String[] pair = pairs[shard.pair];
+                    write(output, "batch", shard.id+" "+shard.seed+" "+shard.games+" "+pair[0]+" "+pair[1]);
+                    String line = input.readLine();
+                    if (line == null) {
+                        throw new IOException("disconnected");
+                    }
+                    finish(shard, line);
+                    shard = null;
+                }
+                write(output, "done", null);
+            } finally {
+                connected.decrementAndGet();
+            }
+        } catch (SocketTimeoutException e) {
+            System.err.println("Worker timed out");
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            System.err.println("Worker failed: "+e);
+        } finally {
+            if (shard != null) {
+                reassigned.incrementAndGet();
+                queue.addFirst(shard);
+            }
+        }
+    }
+
+    private void finish(Shard shard, String line) throws IOException {
+        if (!line.startsWith("result"+MESSAGE_SEPARATOR)) {
+            throw new IOException("expected a result but got "+line);
+        }
+        String[] parts = line.substring(line.indexOf(MESSAGE_SEPARATOR)+1).split(" ");
+        if (Integer.parseInt(parts[0]) != shard.id) {
+            throw new IOException("result for the wrong shard: "+line);
+        }
+        Simulator.Result result = new Simulator.Result();
+        result.wins[0] = Long.parseLong(parts[1]);
+        result.wins[1] = Long.parseLong(parts[2]);
+        result.games = Long.parseLong(parts[3]);
+        result.unfinished = Long.parseLong(parts[4]);
+        result.turns = Long.parseLong(parts[5]);
+        synchronized (results) {
+            // A shard that was given out again may come back twice, but it only counts once
+            if (results[shard.id] != null) {
+                return;
+            }
+            results[shard.id] = result;
+        }
+        remaining.countDown();
+    }
+
+    private Simulator.Result[] totals() {
+        Simulator.Result[] totals = new Simulator.Result[pairs.length];
+        for (int pair = 0; pair < pairs.length; pair++) {
+            totals[pair] = new Simulator.Result();
+        }
+        for (Shard shard : shards) {
+            totals[shard.pair].add(results[shard.id]);
+        }
+        return totals;
+    }
+
+    private static Process startWorker(int port) throws IOException {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                SimulationWorker.class.getName(), "-port", Integer.toString(port))
+            .inheritIO()
+            .start();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long games = 100_000;
+        long seed = 0;
+        long shardSize = 1_000;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int port = DEFAULT_PORT;
+        int timeout = 600;
+        String pairList = Strategies.DEFAULT+":"+Strategies.DEFAULT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-games":
+                games = Long.parseLong(args[++i]);
+                break;
+            case "-seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "-shard":
+                shardSize = Long.parseLong(args[++i]);
+                break;
+            case "-workers":
+                workers = Integer.parseInt(args[++i]);
+                break;
+            case "-port":
+                port = Integer.parseInt(args[++i]);
+                break;
+            case "-pairs":
+                pairList = args[++i];
+                break;
+            case "-timeout":
+                timeout = Integer.parseInt(args[++i]);
+                break;
+            default:
+                System.err.println("Unknown option: "+args[i]);
+                System.exit(1);
+            }
+        }
+        String[] pairNames = pairList.split(",");
+        String[][] pairs = new String[pairNames.length][];
+        List<String> names = Strategies.getNames();
+        for (int p = 0; p < pairs.length; p++) {
+            pairs[p] = pairNames[p].split(":");
+            if (pairs[p].length != 2 || !names.contains(pairs[p][0]) || !names.contains(pairs[p][1])) {
+                System.err.println("Invalid pair: "+pairNames[p]+" (available: "+names+")");
+                System.exit(1);
+            }
+        }
+
+        SimulationCoordinator coordinator = new SimulationCoordinator(pairs, seed, games, shardSize, timeout*1000);
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> coordinator.accept(server));
+        acceptor.setName("simulationAcceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        long start = System.nanoTime();
+        List<Process> processes = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            processes.add(startWorker(port));
+        }
+        int restarts = 0;
+        while (!coordinator.remaining.await(200, TimeUnit.MILLISECONDS)) {
+            for (int w = 0; w < processes.size(); w++) {
+                if (!processes.get(w).isAlive() && restarts < MAX_RESTARTS_PER_WORKER*workers) {
+                    restarts++;
+                    System.err.println("Restarting a worker that exited with code "+processes.get(w).exitValue());
+                    processes.set(w, startWorker(port));
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start)/1e9;
+        server.close();
+        for (Process process : processes) {
+            process.waitFor(5, TimeUnit.SECONDS);
+        }
+
+        long total = 0;
+        Simulator.Result[] totals = coordinator.totals();
+        for (Simulator.Result result : totals) {
+            total += result.games;
+        }
+        System.out.printf("%,d games in %,d shards on %d workers in %.2f s (%,.0f games/s), %d shards reassigned%n",
+            total, coordinator.shards.length, workers, seconds, total/seconds, coordinator.reassigned.get());
+        for (int p = 0; p < pairs.length; p++) {
+            Simulator.Result result = totals[p];
+            System.out.printf("%s vs %s: %.2f%% / %.2f%%, %,d unfinished, %.1f moves per game%n", pairs[p][0],
+                pairs[p][1], 100*result.winRate(0), 100*result.winRate(1), result.unfinished, result.averageTurns());
+        }
+    }
+}
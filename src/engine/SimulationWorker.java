@@ -0,0 +1,84 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ *   Runs batches of simulated games for a SimulationCoordinator. It connects to the coordinator, and then plays each
+ * batch it is sent and sends back the totals until it is told that there is nothing left to do.
+ *
+ *   Messages are lines of the form kind:contents, like those between two online games:
+ *
+ *   worker -> coordinator   version:N             on connecting
+ *   coordinator -> worker   batch:ID SEED GAMES A B
+ *   worker -> coordinator   result:ID WINS0 WINS1 GAMES UNFINISHED TURNS
+ *   coordinator -> worker   done
+ *
+ *   Usage: java engine.SimulationWorker [-host HOST] [-port N] [-threads N] [-failAfter N]
+ *
+ *   With -failAfter, the worker exits without answering after that many batches, to test that its work is given to
+ * another worker.
+ */
+public final class SimulationWorker {
+    private SimulationWorker() {}
+
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = SimulationCoordinator.DEFAULT_PORT;
+        int threads = 1;
+        int failAfter = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-host":
+                host = args[++i];
+                break;
+            case "-port":
+                port = Integer.parseInt(args[++i]);
+                break;
+            case "-threads":
+                threads = Integer.parseInt(args[++i]);
+                break;
+            case "-failAfter":
+                failAfter = Integer.parseInt(args[++i]);
+                break;
+            default:
+                System.err.println("Unknown option: "+args[i]);
+                System.exit(1);
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (Socket socket = new Socket(host, port);
+             BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+             PrintWriter output = new PrintWriter(socket.getOutputStream(), false)) {
+            SimulationCoordinator.write(output, "version", Integer.toString(SimulationCoordinator.PROTOCOL_VERSION));
+            int batches = 0;
+            String line;
+            while ((line = input.readLine()) != null) {
+                int separatorIndex = line.indexOf(SimulationCoordinator.MESSAGE_SEPARATOR);
+                String kind = separatorIndex == -1 ? line : line.substring(0, separatorIndex);
+                switch (kind) {
+                case "batch":
+                    if (batches++ == failAfter) {
+                        System.exit(1);
+                    }
+                    String[] parts = line.substring(separatorIndex+1).split(" ");
+                    Simulator.Result result = Simulator.run(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                        parts[3], parts[4], Rules.STANDARD, pool);
+                    SimulationCoordinator.write(output, "result", parts[0]+" "+result.wins[0]+" "+result.wins[1]
+                        +" "+result.games+" "+result.unfinished+" "+result.turns);
+                    break;
+                case "done":
+                    return;
+                default:
+                    throw new IllegalStateException("error: unexpected message: "+line);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package engine;
+
+import manager.Deal;
+import manager.GameRandom;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ *   Plays computer-vs-computer games without a display on a fork-join pool. Game i is dealt from seed + i, so a run
+ * can be reproduced exactly, and games are split into batches that keep the same players so that streaks (and the
+ * computer easing off when it is winning) carry over between games like they would in real play.
+ *
+ *   Usage: java engine.Simulator [-games N] [-seed N] [-threads N] [-a STRATEGY] [-b STRATEGY] [-rules VARIANTS]
+ *
+ *   Seat 0 plays strategy a and seat 1 plays strategy b (both are the default strategy unless given). Games are played
+ * by the standard rules unless house rules are given, like "stacking,seven-o,jump-in".
+ */
+public final class Simulator {
+    private Simulator() {}
+
+    private static final int BATCH_SIZE = 1_000;
+
+    // Games that go on this long are stopped and counted as unfinished
+    private static final int MAX_TURNS = 10_000;
+
+    public static final class Result {
+        public final long[] wins = new long[2];
+        public long games = 0;
+        public long unfinished = 0;
+        public long turns = 0;
+
+        void add(Result other) {
+            wins[0] += other.wins[0];
+            wins[1] += other.wins[1];
+            games += other.games;
+            unfinished += other.unfinished;
+            turns += other.turns;
+        }
+
+        public double winRate(int seat) {
+            return (double) wins[seat] / games;
+        }
+
+        public double averageTurns() {
+            return (double) turns / games;
+        }
+    }
+
+    public static Result run(long seed, long games, String a, String b, Rules rules, ForkJoinPool pool) {
+        return pool.invoke(new SimulationTask(seed, games, a, b, rules));
+    }
+
+    private static final class SimulationTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final long games;
+        private final String a;
+        private final String b;
+        private final Rules rules;
+
+        SimulationTask(long seed, long games, String a, String b, Rules rules) {
+            this.seed = seed;
+            this.games = games;
+            this.a = a;
+            this.b = b;
+            this.rules = rules;
+        }
+
+        @Override
+        protected Result compute() {
+            if (games <= BATCH_SIZE) {
+                return playBatch(seed, games, a, b, rules);
+            }
+            long half = games/2;
+            SimulationTask left = new SimulationTask(seed, half, a, b, rules);
+            left.fork();
+            Result result = new SimulationTask(seed+half, games-half, a, b, rules).compute();
+            result.add(left.join());
+            return result;
+        }
+    }
+
+    public static Result playBatch(long seed, long games, String a, String b, Rules rules) {
+        Result result = new Result();
+        Strategy[] players = {Strategies.create(a), Strategies.create(b)};
+        for (long i = 0; i < games; i++) {
+            // Alternate which seat goes first
+            GameState state = new GameState(new Deal(new GameRandom(seed+i)), (seed+i) % 2 == 0);
+            state.setRules(rules);
+            result.turns += playGame(state, players);
+            result.games++;
+            if (state.isOver()) {
+                int winner = state.getWinner();
+                result.wins[winner]++;
+                players[winner].gameOver(true);
+                players[1-winner].gameOver(false);
+            } else {
+                result.unfinished++;
+            }
+        }
+        return result;
+    }
+
+    // Plays until someone wins (or MAX_TURNS is reached) and returns the number of moves made
+    public static int playGame(GameState state, Strategy[] players) {
+        GameEngine engine = new GameEngine(state);
+        StateView view = new StateView(engine);
+        int moves = 0;
+        while (!state.isOver() && moves < MAX_TURNS) {
+            if (!view.jumpIn()) {
+                view.apply(players[state.getTurn()].decide(view));
+            }
+            moves++;
+        }
+        return moves;
+    }
+
+    public static void main(String[] args) {
+        long games = 1_000_000;
+        long seed = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String a = Strategies.DEFAULT;
+        String b = Strategies.DEFAULT;
+        Rules rules = Rules.STANDARD;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-games":
+                games = Long.parseLong(args[++i]);
+                break;
+            case "-seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "-threads":
+                threads = Integer.parseInt(args[++i]);
+                break;
+            case "-a":
+                a = args[++i];
+                break;
+            case "-b":
+                b = args[++i];
+                break;
+            case "-rules":
+                rules = Rules.parse(args[++i]);
+                break;
+            default:
+                System.err.println("Unknown option: "+args[i]);
+                System.exit(1);
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        Result result = run(seed, games, a, b, rules, pool);
+        double seconds = (System.nanoTime() - start)/1e9;
+        System.out.printf("%,d games on %d threads in %.2f s (%,.0f games/s)%n", result.games, threads, seconds, result.games/seconds);
+        System.out.printf("seat 0 (%s) wins: %.2f%%%n", a, 100*result.winRate(0));
+        System.out.printf("seat 1 (%s) wins: %.2f%%%n", b, 100*result.winRate(1));
+        System.out.printf("unfinished: %,d%n", result.unfinished);
+        System.out.printf("average moves per game: %.1f%n", result.averageTurns());
+    }
+}
@@ -0,0 +1,133 @@
+package engine;
+
+import card.DrawPile;
+
+import java.util.SplittableRandom;
+
+/*
+ *   A copy of another view, taken so that a strategy can think on another thread while the game it came from keeps
+ * changing. Nothing in it refers back to the original game.
+ */
+public final class SnapshotView implements GameView {
+    private final int seat;
+    private final int seats;
+    private final int nextSeat;
+    private final int direction;
+    private final Hand hand = new Hand();
+    private final int[] handSizes;
+    private final DrawPile unseen = new DrawPile();
+    private final int topOfDeck;
+    private final int deckSize;
+    private final boolean hasDrawn;
+    private final boolean isPeeking;
+    private final Rules rules;
+    private final int pendingDraws;
+    private final SplittableRandom random;
+    private final CardTracker tracker;
+
+    // Must be called on the thread that owns the original view
+    public SnapshotView(GameView view) {
+        seat = view.seat();
+        seats = view.seats();
+        nextSeat = view.nextSeat();
+        direction = view.direction();
+        HandView hand = view.hand();
+        for (int c = 0; c < hand.count(); c++) {
+            this.hand.add(hand.cardAt(c));
+        }
+        handSizes = new int[seats];
+        for (int s = 0; s < seats; s++) {
+            handSizes[s] = view.handSize(s);
+        }
+        view.unseenCards(unseen);
+        topOfDeck = view.topOfDeck();
+        deckSize = view.deckSize();
+        hasDrawn = view.hasDrawn();
+        isPeeking = view.isPeeking();
+        rules = view.rules();
+        pendingDraws = view.pendingDraws();
+        random = view.random().split();
+        CardTracker tracker = view.tracker();
+        if (tracker == null) {
+            this.tracker = null;
+        } else {
+            this.tracker = new CardTracker();
+            this.tracker.copyFrom(tracker);
+        }
+    }
+
+    @Override
+    public int seat() {
+        return seat;
+    }
+
+    @Override
+    public int seats() {
+        return seats;
+    }
+
+    @Override
+    public int nextSeat() {
+        return nextSeat;
+    }
+
+    @Override
+    public int direction() {
+        return direction;
+    }
+
+    @Override
+    public HandView hand() {
+        return hand;
+    }
+
+    @Override
+    public int handSize(int seat) {
+        return handSizes[seat];
+    }
+
+    @Override
+    public void unseenCards(DrawPile unseen) {
+        unseen.copyFrom(this.unseen);
+    }
+
+    @Override
+    public int topOfDeck() {
+        return topOfDeck;
+    }
+
+    @Override
+    public int deckSize() {
+        return deckSize;
+    }
+
+    @Override
+    public boolean hasDrawn() {
+        return hasDrawn;
+    }
+
+    @Override
+    public boolean isPeeking() {
+        return isPeeking;
+    }
+
+    @Override
+    public Rules rules() {
+        return rules;
+    }
+
+    @Override
+    public int pendingDraws() {
+        return pendingDraws;
+    }
+
+    @Override
+    public SplittableRandom random() {
+        return random;
+    }
+
+    @Override
+    public CardTracker tracker() {
+        return tracker;
+    }
+}
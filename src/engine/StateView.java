@@ -0,0 +1,199 @@
+package engine;
+
+import card.CardSet;
+import card.DrawPile;
+import manager.DeckManager;
+
+import java.util.SplittableRandom;
+
+/*
+ *   A view of a headless game for the seat whose turn it is. In two-seat games, moves should be made with apply and
+ * jumpIn so that each seat's CardTracker sees what that seat would.
+ */
+public final class StateView implements GameView {
+    private final GameState state;
+    private final GameEngine engine;
+    private final CardTracker[] trackers;
+
+    // Must be created at the start of the game
+    public StateView(GameEngine engine) {
+        this.engine = engine;
+        this.state = engine.getState();
+        if (state.seats() != 2) {
+            trackers = null;
+            return;
+        }
+        trackers = new CardTracker[2];
+        for (int seat = 0; seat < 2; seat++) {
+            CardTracker tracker = new CardTracker();
+            tracker.reset(state.getTopOfDeck(), state.getHand(1-seat).size(), DeckManager.decksFor(2));
+            Hand hand = state.getHand(seat);
+            for (int c = 0; c < hand.size(); c++) {
+                tracker.see(hand.get(c));
+            }
+            trackers[seat] = tracker;
+        }
+        engine.setListener(new GameListener() {
+            @Override
+            public void cardDrawn(int seat, int id) {
+                trackers[seat].see(id);
+                trackers[1-seat].opponentDrew();
+            }
+
+            @Override
+            public void cardDealt(int seat, int id) {
+                cardDrawn(seat, id);
+            }
+
+            @Override
+            public void cardPlayed(int seat, int c, int id) {
+                trackers[1-seat].opponentPlayed(id);
+            }
+
+            @Override
+            public void handsSwapped(int seat, int other) {
+                for (int s = 0; s < 2; s++) {
+                    trackers[s].handsSwapped(state.getHand(s).set(), state.getHand(1-s).set());
+                }
+            }
+
+            @Override
+            public void handsRotated(int direction) {
+                handsSwapped(0, 1);
+            }
+
+            @Override
+            public void deckRefilled(int[] ids, int length) {
+                for (CardTracker tracker : trackers) {
+                    for (int i = 0; i < length; i++) {
+                        tracker.unsee(ids[i]);
+                    }
+                }
+            }
+        });
+    }
+
+    // Makes a move for the seat to move
+    public void apply(int move) {
+        if (trackers != null && move == Move.DRAW) {
+            trackers[1-state.getTurn()].opponentHadNone(engine.legalCards());
+        }
+        Move.apply(engine, move);
+        revealIfOver();
+    }
+
+    // Under the jump-in rules, the first seat after the one to move that can jump in does, since a free play never hurts
+    public boolean jumpIn() {
+        for (int seat = engine.nextSeat(); seat != state.getTurn(); seat = engine.seatAfter(seat)) {
+            long jumpIns = engine.jumpIns(seat);
+            if (jumpIns != 0) {
+                Hand hand = state.getHand(seat);
+                for (int c = 0; c < hand.size(); c++) {
+                    if (CardSet.contains(jumpIns, hand.get(c))) {
+                        engine.jumpIn(seat, c);
+                        revealIfOver();
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void revealIfOver() {
+        if (trackers == null || !state.isOver()) {
+            return;
+        }
+        for (int s = 0; s < 2; s++) {
+            Hand hand = state.getHand(1-s);
+            int[] ids = new int[hand.size()];
+            for (int c = 0; c < ids.length; c++) {
+                ids[c] = hand.get(c);
+            }
+            trackers[s].reveal(ids, ids.length);
+        }
+    }
+
+    @Override
+    public CardTracker tracker() {
+        return trackers == null ? null : trackers[state.getTurn()];
+    }
+
+    @Override
+    public int seat() {
+        return state.getTurn();
+    }
+
+    @Override
+    public int seats() {
+        return state.seats();
+    }
+
+    @Override
+    public int nextSeat() {
+        return engine.nextSeat();
+    }
+
+    @Override
+    public int direction() {
+        return state.getDirection();
+    }
+
+    @Override
+    public HandView hand() {
+        return engine.current();
+    }
+
+    @Override
+    public int handSize(int seat) {
+        return state.getHand(seat).size();
+    }
+
+    @Override
+    public void unseenCards(DrawPile unseen) {
+        unseen.copyFrom(state.getDeck());
+        for (int seat = 0; seat < state.seats(); seat++) {
+            if (seat != state.getTurn()) {
+                Hand hand = state.getHand(seat);
+                for (int c = 0; c < hand.size(); c++) {
+                    unseen.add(hand.get(c));
+                }
+            }
+        }
+    }
+
+    @Override
+    public int topOfDeck() {
+        return state.getTopOfDeck();
+    }
+
+    @Override
+    public int deckSize() {
+        return state.getDeck().size();
+    }
+
+    @Override
+    public boolean hasDrawn() {
+        return state.hasDrawn();
+    }
+
+    @Override
+    public Rules rules() {
+        return state.getRules();
+    }
+
+    @Override
+    public int pendingDraws() {
+        return state.getPendingDraws();
+    }
+
+    @Override
+    public boolean isPeeking() {
+        return false;
+    }
+
+    @Override
+    public SplittableRandom random() {
+        return state.getRandom().decisions();
+    }
+}
@@ -0,0 +1,39 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
+
+public final class Strategies {
+    private Strategies() {}
+
+    public static final String DEFAULT = "default";
+
+    // Each call creates a new instance, so strategies with state are never shared between players
+    public static Strategy create(String name) {
+        for (Strategy strategy : ServiceLoader.load(Strategy.class)) {
+            if (strategy.getName().equals(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("unknown strategy: "+name+" (available: "+getNames()+")");
+    }
+
+    // Threads shared by every strategy that searches in parallel
+    public static ForkJoinPool searchPool() {
+        return PoolHolder.POOL;
+    }
+
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static List<String> getNames() {
+        List<String> names = new ArrayList<>();
+        for (Strategy strategy : ServiceLoader.load(Strategy.class)) {
+            names.add(strategy.getName());
+        }
+        return names;
+    }
+}
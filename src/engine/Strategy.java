@@ -0,0 +1,19 @@
+package engine;
+
+/*
+ *   Decides what the computer does on its turn. Implementations are found with ServiceLoader (listed in
+ * META-INF/services/engine.Strategy) and must have a public no-argument constructor, since every player gets its own
+ * instance and may keep state between games.
+ *
+ *   decide returns a Move: at the start of a turn it must play a playable card or DRAW, and after drawing it must play
+ * a playable card or FINISH.
+ */
+public interface Strategy {
+    String getName();
+
+    int decide(GameView view);
+
+    default void gameOver(boolean won) {}
+
+    default void restore(int handSize, int opponentHandSize) {}
+}
@@ -0,0 +1,49 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ *   A fixed-size hash table of search results that any number of threads can use at once without locking. Each slot
+ * is two longs: the key xor the data, and the data. A reader that sees half of one write and half of another gets a
+ * key that doesn't match, so a torn entry is just a miss. Newer entries always replace older ones.
+ */
+public final class TranspositionTable {
+    public static final long MISS = 0;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    // The table has 2^bits slots
+    public TranspositionTable(int bits) {
+        entries = new AtomicLongArray(2 << bits);
+        mask = (1 << bits) - 1;
+    }
+
+    public int slots() {
+        return mask + 1;
+    }
+
+    // Returns the data stored for the key, or MISS
+    public long probe(long key) {
+        int slot = index(key);
+        long data = entries.get(slot+1);
+        return (entries.get(slot) ^ data) == key ? data : MISS;
+    }
+
+    // The data must not be MISS
+    public void store(long key, long data) {
+        int slot = index(key);
+        entries.set(slot, key ^ data);
+        entries.set(slot+1, data);
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0);
+        }
+    }
+
+    private int index(long key) {
+        return ((int) (key ^ key >>> 32) & mask) << 1;
+    }
+}
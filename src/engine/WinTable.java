@@ -0,0 +1,140 @@
+package engine;
+
+import card.CardSet;
+import card.UnoCard;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/*
+ *   How likely a seat is to win a two-seat game, by a few things about the position: the size of its hand and the
+ * other hand, how many wild cards it has, how many of its cards match the color of the top of the deck, what kind of
+ * card is on top, and whether it is the seat's turn. WinTableGenerator estimates these by simulation and writes them
+ * to a file, which is memory-mapped here so a lookup is a single read.
+ *
+ *   The file is a header (MAGIC, VERSION, then the size of each dimension) followed by one unsigned short per entry,
+ * where 0 means the seat never wins and 65535 means it always does.
+ */
+public final class WinTable {
+    public static final String FILE_NAME = "winTable";
+
+    static final int MAGIC = 0x554E4F57;
+    static final int VERSION = 1;
+
+    // Larger values are counted as the largest
+    public static final int HAND_SIZES = 15;
+    public static final int WILD_COUNTS = 4;
+    public static final int MATCH_COUNTS = 5;
+
+    public static final int TOP_NUMERIC = 0;
+    public static final int TOP_ACTION = 1;
+    public static final int TOP_WILD = 2;
+    public static final int TOP_CLASSES = 3;
+
+    static final int[] DIMENSIONS = {HAND_SIZES, HAND_SIZES, WILD_COUNTS, MATCH_COUNTS, TOP_CLASSES, 2};
+    static final int ENTRIES = HAND_SIZES*HAND_SIZES*WILD_COUNTS*MATCH_COUNTS*TOP_CLASSES*2;
+    static final int HEADER_BYTES = 4*(2 + DIMENSIONS.length);
+    static final int FILE_BYTES = HEADER_BYTES + 2*ENTRIES;
+
+    private static final int[] TOP_CLASS = new int[UnoCard.ID_COUNT];
+    private static final long[] TOP_COLOR_MASK = new long[UnoCard.ID_COUNT];
+
+    private final ByteBuffer entries;
+
+    private WinTable(ByteBuffer entries) {
+        this.entries = entries;
+    }
+
+    private static final class DefaultHolder {
+        static final WinTable DEFAULT = openConfigured(System.getProperty("uno.winTable"));
+
+        private static WinTable openConfigured(String path) {
+            if (path == null) {
+                return null;
+            } else if (path.isEmpty()) {
+                return open(new File(new File(System.getProperty("user.home"), ".unoGame"), FILE_NAME));
+            }
+            return open(new File(path));
+        }
+    }
+
+    /*
+     *   The table named by the uno.winTable system property (or the one in the game's directory if it is set but empty),
+     * or null if it isn't set or the table hasn't been generated. A table is never used just because the file exists,
+     * so the default strategy plays the same way everywhere unless one is asked for.
+     */
+    public static WinTable get() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    // Maps a table file, returning null if it is missing or isn't a table
+    public static WinTable open(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() != FILE_BYTES) {
+                throw new IOException("expected "+FILE_BYTES+" bytes but found "+channel.size());
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_BYTES);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("not a win table, or from another version");
+            }
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                if (buffer.getInt(8 + 4*d) != DIMENSIONS[d]) {
+                    throw new IOException("dimensions don't match");
+                }
+            }
+            return new WinTable(buffer);
+        } catch (IOException e) {
+            System.err.println("Could not load "+file+": "+e.getMessage());
+            return null;
+        }
+    }
+
+    public double winProbability(int handSize, int opponentHandSize, int wilds, int matches, int topClass, boolean toMove) {
+        int index = index(handSize, opponentHandSize, wilds, matches, topClass, toMove);
+        return (entries.getShort(HEADER_BYTES + 2*index) & 0xFFFF) / 65535.0;
+    }
+
+    static int index(int handSize, int opponentHandSize, int wilds, int matches, int topClass, boolean toMove) {
+        int index = clamp(handSize-1, HAND_SIZES);
+        index = index*HAND_SIZES + clamp(opponentHandSize-1, HAND_SIZES);
+        index = index*WILD_COUNTS + clamp(wilds, WILD_COUNTS);
+        index = index*MATCH_COUNTS + clamp(matches, MATCH_COUNTS);
+        index = index*TOP_CLASSES + topClass;
+        return index*2 + (toMove ? 1 : 0);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(value, size-1));
+    }
+
+    public static int topClass(int topOfDeck) {
+        return TOP_CLASS[topOfDeck];
+    }
+
+    // How many cards in the hand match the color of the top of the deck
+    public static int matches(CardSet hand, int topOfDeck) {
+        return hand.countIn(TOP_COLOR_MASK[topOfDeck]);
+    }
+
+    static {
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            UnoCard card = UnoCard.fromId(id);
+            if (CardSet.contains(CardSet.wildMask(), id)) {
+                TOP_CLASS[id] = TOP_WILD;
+                if (id != UnoCard.wildId(false, UnoCard.NO_COLOR) && id != UnoCard.wildId(true, UnoCard.NO_COLOR)) {
+                    TOP_COLOR_MASK[id] = CardSet.colorMask(card.getColorCode());
+                }
+                continue;
+            }
+            TOP_CLASS[id] = card.isNumeric() ? TOP_NUMERIC : TOP_ACTION;
+            TOP_COLOR_MASK[id] = CardSet.colorMask(card.getColorCode());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package engine;
+
+import card.CardSet;
+import manager.Deal;
+import manager.GameRandom;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ *   Writes a WinTable by playing computer-vs-computer games and counting, for every entry, how often a seat in that
+ * situation at the start of a turn went on to win. The players use the fixed thresholds rather than an older table.
+ *
+ *   Entries that came up rarely are pulled towards the win rate for the same two hand sizes, so they aren't just noise.
+ *
+ *   Usage: java engine.WinTableGenerator [-games N] [-seed N] [-out FILE]
+ *
+ *   The table is written to the game's directory unless another file is given, but the computer only plays by it when
+ * the uno.winTable system property is set (to the file, or left empty for the one in the game's directory).
+ */
+public final class WinTableGenerator {
+    private WinTableGenerator() {}
+
+    private static final int MAX_TURNS = 10_000;
+
+    // How many games an entry needs before its own win rate counts as much as the win rate for its hand sizes
+    private static final double SMOOTHING = 20;
+
+    private final long[] wins = new long[WinTable.ENTRIES];
+    private final long[] totals = new long[WinTable.ENTRIES];
+
+    // Entries seen in the current game and whose they were
+    private int[] seen = new int[1024];
+    private int[] seats = new int[1024];
+    private int seenCount = 0;
+
+    private void playGame(long seed, Strategy[] players) {
+        GameState state = new GameState(new Deal(new GameRandom(seed)), seed % 2 == 0);
+        GameEngine engine = new GameEngine(state);
+        StateView view = new StateView(engine);
+        seenCount = 0;
+        for (int moves = 0; !state.isOver() && moves < MAX_TURNS; moves++) {
+            if (!state.hasDrawn()) {
+                for (int seat = 0; seat < 2; seat++) {
+                    record(state, seat);
+                }
+            }
+            view.apply(players[state.getTurn()].decide(view));
+        }
+        if (!state.isOver()) {
+            return;
+        }
+        int winner = state.getWinner();
+        for (int seat = 0; seat < 2; seat++) {
+            players[seat].gameOver(seat == winner);
+        }
+        for (int i = 0; i < seenCount; i++) {
+            totals[seen[i]]++;
+            if (seats[i] == winner) {
+                wins[seen[i]]++;
+            }
+        }
+    }
+
+    private void record(GameState state, int seat) {
+        if (seenCount == seen.length) {
+            seen = Arrays.copyOf(seen, 2*seen.length);
+            seats = Arrays.copyOf(seats, 2*seats.length);
+        }
+        CardSet hand = state.getHand(seat).cardSet();
+        int top = state.getTopOfDeck();
+        seen[seenCount] = WinTable.index(hand.size(), state.getHand(1-seat).size(), hand.countIn(CardSet.wildMask()),
+            WinTable.matches(hand, top), WinTable.topClass(top), state.getTurn() == seat);
+        seats[seenCount++] = seat;
+    }
+
+    private void write(File file) throws IOException {
+        // Win rates by both hand sizes and whose turn it is, ignoring everything else
+        int group = WinTable.WILD_COUNTS*WinTable.MATCH_COUNTS*WinTable.TOP_CLASSES;
+        long[] groupWins = new long[WinTable.ENTRIES/group];
+        long[] groupTotals = new long[WinTable.ENTRIES/group];
+        for (int i = 0; i < WinTable.ENTRIES; i++) {
+            int g = i/(2*group)*2 + i%2;
+            groupWins[g] += wins[i];
+            groupTotals[g] += totals[i];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(WinTable.FILE_BYTES);
+        buffer.putInt(WinTable.MAGIC);
+        buffer.putInt(WinTable.VERSION);
+        for (int size : WinTable.DIMENSIONS) {
+            buffer.putInt(size);
+        }
+        for (int i = 0; i < WinTable.ENTRIES; i++) {
+            int g = i/(2*group)*2 + i%2;
+            double prior = (groupWins[g] + 1.0)/(groupTotals[g] + 2.0);
+            double probability = (wins[i] + SMOOTHING*prior)/(totals[i] + SMOOTHING);
+            buffer.putShort((short) Math.round(probability*65535));
+        }
+        buffer.flip();
+
+        Path path = file.toPath();
+        Path temp = path.resolveSibling(path.getFileName()+".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        // A table that is already mapped must not change underneath the game, so the new one replaces it
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long games = 1_000_000;
+        long seed = 0;
+        File out = new File(new File(System.getProperty("user.home"), ".unoGame"), WinTable.FILE_NAME);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-games":
+                games = Long.parseLong(args[++i]);
+                break;
+            case "-seed":
+                seed = Long.parseLong(args[++i]);
+                break;
+            case "-out":
+                out = new File(args[++i]);
+                break;
+            default:
+                System.err.println("Unknown option: "+args[i]);
+                System.exit(1);
+            }
+        }
+        WinTableGenerator generator = new WinTableGenerator();
+        Strategy[] players = {new ComputerPlayer(null), new ComputerPlayer(null)};
+        long start = System.nanoTime();
+        for (long i = 0; i < games; i++) {
+            generator.playGame(seed+i, players);
+        }
+        double seconds = (System.nanoTime() - start)/1e9;
+        long empty = 0;
+        for (long total : generator.totals) {
+            if (total == 0) {
+                empty++;
+            }
+        }
+        System.out.printf("%,d games in %.2f s, %,d of %,d entries never came up%n", games, seconds, empty, WinTable.ENTRIES);
+        File directory = out.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            directory.mkdirs();
+        }
+        generator.write(out);
+        System.out.println("wrote "+out);
+    }
+}
@@ -0,0 +1,38 @@
+package manager;
+
+import card.CardSet;
+import card.DrawPile;
+import card.UnoCard;
+
+import java.util.SplittableRandom;
+
+// The opening hands, top of deck and remaining draw pile for a new game, along with the random streams used to deal it
+public final class Deal {
+    public final GameRandom random;
+    public final DrawPile deck = new DrawPile();
+    public final UnoCard[] playerHand = new UnoCard[DeckManager.CARDS_PER_HAND];
+    public final UnoCard[] opponentHand = new UnoCard[DeckManager.CARDS_PER_HAND];
+    public final UnoCard topOfDeck;
+
+    public Deal(GameRandom random) {
+        this.random = random;
+        SplittableRandom dealRandom = random.deal();
+        deck.addNewDeck();
+        int playerAdvantage = 0;
+        for (int i = 0; i < DeckManager.CARDS_PER_HAND; i++) {
+            UnoCard a = deck.draw(dealRandom);
+            UnoCard b = deck.draw(dealRandom);
+            int diff = a.getPowerCode()-b.getPowerCode();
+            if (Math.abs(playerAdvantage+diff) > UnoCard.MAX_POWER_DIFF) {
+                opponentHand[i] = a;
+                playerHand[i] = b;
+                playerAdvantage -= diff;
+            } else {
+                playerHand[i] = a;
+                opponentHand[i] = b;
+                playerAdvantage += diff;
+            }
+        }
+        topOfDeck = deck.drawMatching(CardSet.numericMask(), dealRandom);
+    }
+}
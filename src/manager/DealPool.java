@@ -0,0 +1,57 @@
+package manager;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ *   Keeps a bounded number of balanced opening deals ready so that starting a new game only has to take one from the
+ * queue. A background thread deals a replacement whenever one is taken. If the pool is ever empty, the deal is made
+ * on the calling thread instead and counted as a miss.
+ */
+public final class DealPool {
+    private final ArrayBlockingQueue<Deal> deals;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DealPool(int capacity) {
+        deals = new ArrayBlockingQueue<>(capacity);
+        Thread dealer = new Thread(() -> {
+            while (true) {
+                try {
+                    deals.put(new Deal(GameRandom.newGame()));
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        dealer.setName("dealPool");
+        dealer.setDaemon(true);
+        dealer.start();
+    }
+
+    Deal take() {
+        Deal deal = deals.poll();
+        if (deal == null) {
+            misses.incrementAndGet();
+            return new Deal(GameRandom.newGame());
+        }
+        hits.incrementAndGet();
+        return deal;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int available() {
+        return deals.size();
+    }
+
+    @Override
+    public String toString() {
+        return "DealPool(hits: "+getHits()+", misses: "+getMisses()+", available: "+available()+")";
+    }
+}
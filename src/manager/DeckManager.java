@@ -1,35 +1,69 @@
 package manager;
 
 import card.CardObject;
+import card.DrawPile;
 import card.UnoCard;
 import display.Uno;
 import display.UnoPanel;
+import engine.GameState;
+import engine.Rules;
 
 import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public final class DeckManager {
     private static final char VERSION_PREFIX = '#';
+    private static final int LEGACY_HAS_DRAWN_LINE = 7;
+    private static final int LEGACY_SEED_LINE = 8;
+
+    // Between full saves, moves are only added to the journal
+    private static final int SNAPSHOT_INTERVAL = Integer.getInteger("uno.snapshotInterval", 64);
 
     public static final int CARDS_PER_DECK = 108;
     public static final int CARDS_PER_HAND = 7;
     public static final int INITIAL_DECK_COUNT = CARDS_PER_DECK - CARDS_PER_HAND*2 - 1;
 
+    // Big tables shuffle another deck in for every few seats so the draw pile doesn't run out immediately
+    private static final int SEATS_PER_DECK = 6;
+
+    // The pool is only started once a game is dealt, so headless code can use the constants here without it
+    private static final class DealPoolHolder {
+        static final DealPool DEAL_POOL = new DealPool(8);
+    }
+
     private final File saveFile;
     private final Path savePath;
 
-    private List<UnoCard> deck;
+    private GameState state;
+    // Moves made since the deal, so that a resumed game gets new random streams
+    private int moves;
+
+    private final SavedGame save = new SavedGame();
+    private final SaveFormat format = new SaveFormat();
+    private final SaveWriter writer;
+    private final MoveJournal journal;
+    private final Path replayPath;
+    private final GameRecord gameRecord = new GameRecord();
+    // New games are dealt with these rules, but resumed games keep the rules they were started with
+    private final Rules rules;
 
     public DeckManager(String gameType) {
+        this(gameType, Rules.STANDARD);
+    }
+
+    public DeckManager(String gameType, Rules rules) {
+        this.rules = rules;
         saveFile = new File(Uno.UNO_DIRECTORY, gameType+"Game");
         savePath = saveFile.toPath();
+        writer = new SaveWriter(savePath);
+        journal = openJournal(new File(Uno.UNO_DIRECTORY, gameType+"Journal"));
+        replayPath = replayFile(gameType).toPath();
         if (canLoadGame()) {
             int result = JOptionPane.showOptionDialog(
                     null,
@@ -52,60 +86,185 @@ public final class DeckManager {
         }
     }
 
-    int count() {
-        return deck.size();
+    // Without a journal every save is a full save, which is how saving worked before there was one
+    private static MoveJournal openJournal(File file) {
+        try {
+            return new MoveJournal(file.toPath());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not open the move journal: "+e);
+            return null;
+        }
+    }
+
+    // Where the last finished game of the type is kept to be watched again
+    public static File replayFile(String gameType) {
+        return new File(Uno.UNO_DIRECTORY, gameType+"Replay");
     }
 
-    public UnoCard draw() {
-        // If the deck is empty, use discarded cards
-        if (deck.isEmpty()) {
-            deck = UnoPanel.newDeckFromDiscard();
+    public static DealPool getDealPool() {
+        return DealPoolHolder.DEAL_POOL;
+    }
+
+    // The house rules set with the uno.rules system property, like "stacking,seven-o,jump-in"
+    public static Rules configuredRules() {
+        try {
+            return Rules.parse(System.getProperty("uno.rules", "standard"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Could not use the house rules: "+e.getMessage());
+            return Rules.STANDARD;
         }
-        return deck.remove(deck.size() - 1);
+    }
+
+    public static int decksFor(int seats) {
+        return (seats + SEATS_PER_DECK - 1) / SEATS_PER_DECK;
+    }
+
+    public static int initialDeckCount(int seats) {
+        return decksFor(seats)*CARDS_PER_DECK - CARDS_PER_HAND*seats - 1;
+    }
+
+    public void copyDeckInto(DrawPile pile) {
+        pile.copyFrom(state.getDeck());
+    }
+
+    public GameRandom getRandom() {
+        return state.getRandom();
     }
 
     public void startGame() {
         if (loadGame()) {
+            gameRecord.start(save);
             return;
         }
-        deck = UnoCard.newDeck();
-        UnoCard[] playerHand = new UnoCard[CARDS_PER_HAND];
-        UnoCard[] opponentHand = new UnoCard[CARDS_PER_HAND];
-        int playerAdvantage = 0;
-        for (int i = 0; i < CARDS_PER_HAND; i++) {
-            UnoCard a = draw();
-            UnoCard b = draw();
-            int diff = a.getPowerCode()-b.getPowerCode();
-            if (Math.abs(playerAdvantage+diff) > UnoCard.MAX_POWER_DIFF) {
-                opponentHand[i] = a;
-                playerHand[i] = b;
-                playerAdvantage -= diff;
-            } else {
-                playerHand[i] = a;
-                opponentHand[i] = b;
-                playerAdvantage += diff;
-            }
+        if (journal != null) {
+            journal.clear();
         }
-        for (int i = deck.size()-1; ; i--) {
-            if (deck.get(i).isNumeric()) {
-                UnoPanel.newGame(deck.remove(i), playerHand, opponentHand);
-                return;
-            }
+        // Whoever starts is decided once the cards are on the table, which is recorded as the first turn. The table only
+        // has room for one opponent, so the deals in the pool are always for two seats
+        state = new GameState(DealPoolHolder.DEAL_POOL.take(), false);
+        state.setRules(rules);
+        moves = 0;
+        save.copyFrom(state);
+        save.seed = state.getRandom().getSeed();
+        save.moves = 0;
+        gameRecord.start(save);
+        UnoPanel.newGame(state);
+    }
+
+    // The game is over, so there is nothing left to resume, but it can still be watched again
+    public void endGame() {
+        deleteSave();
+        try {
+            gameRecord.write(replayPath);
+        } catch (IOException e) {
+            System.err.println("Could not save the replay: "+e);
         }
     }
 
     public void deleteSave() {
-        saveFile.delete();
+        if (journal != null) {
+            journal.clear();
+        }
+        writer.delete();
+    }
+
+    // Adds a move to the replay and the journal, which ignores it if it hasn't been started by a full save yet
+    void record(int kind, boolean player, int id) {
+        int seat = player ? GameState.PLAYER : GameState.OPPONENT;
+        gameRecord.add(kind, seat, id);
+        moves++;
+        if (journal != null) {
+            journal.append(kind, seat, id);
+        }
     }
 
     public void saveGame() {
-        ArrayList<String> saveData = new ArrayList<>();
-        saveData.add(VERSION_PREFIX+Integer.toString(Uno.VERSION));
-        saveData.add(saveCards(deck));
-        UnoPanel.saveState(saveData);
+        // While a full save is being written, checkpoints are kept for its journal instead of starting another one
+        if (journal != null && (journal.isSaving()
+                || journal.canAppend() && journal.getCheckpoints() < SNAPSHOT_INTERVAL)) {
+            journal.append(MoveJournal.CHECKPOINT, 0, 0);
+            return;
+        }
+        save.copyFrom(state);
+        save.seed = state.getRandom().getSeed();
+        save.moves = moves;
+        if (journal == null) {
+            writer.save(save);
+            return;
+        }
+        // The journal can only follow the save once it is on disk, or a crash would leave it following nothing
+        int ticket = journal.saving(checksum(format.encode(save)));
+        writer.save(save, written -> journal.saveFinished(ticket, written));
+    }
+
+    // The CRC32C at the end of an encoded save, which the journal uses to tell which save it follows
+    private static int checksum(ByteBuffer encoded) {
+        return encoded.getInt(encoded.limit()-4);
+    }
+
+    // Saves requested and saves actually written, which is fewer when saves come faster than they can be written
+    public long getSavesRequested() {
+        return writer.getRequested();
+    }
+
+    public long getSavesWritten() {
+        return writer.getWritten();
+    }
+
+    // Reads the save file into save, returning false if there isn't one or it can't be used
+    private boolean readSave() {
+        // A save or deletion that hasn't been written yet would otherwise be missed
+        writer.flush();
+        if (!saveFile.exists()) {
+            return false;
+        }
         try {
-            Files.write(savePath, saveData, Charset.forName("utf-8"));
-        } catch (IOException ignored) {}
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(savePath));
+            if (SaveFormat.hasMagic(data)) {
+                if (format.decode(data, save)) {
+                    if (journal != null) {
+                        journal.replay(checksum(data), save);
+                    }
+                    return true;
+                }
+                System.err.println("The saved game is corrupted and will be ignored.");
+                return false;
+            }
+            if (journal != null) {
+                journal.clear();
+            }
+            return readLegacySave(new String(data.array(), StandardCharsets.UTF_8).split("\n"));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read the saved game: "+e);
+            return false;
+        }
+    }
+
+    // Saves from before the binary format were lines of text, which are still loaded so games aren't lost on updating
+    private boolean readLegacySave(String[] loadData) {
+        if (loadData.length <= LEGACY_HAS_DRAWN_LINE || !isCorrectVersionInfo(loadData[0].trim())) {
+            return false;
+        }
+        save.clear();
+        addCardIds(save.deck, loadData[1].trim());
+        save.topOfDeck = UnoCard.decodeId(loadData[2].trim());
+        addCardIds(save.discard, loadData[3].trim());
+        addCardIds(save.playerHand, loadData[4].trim());
+        addCardIds(save.opponentHand, loadData[5].trim());
+        save.playerTurn = loadData[6].trim().equals("1");
+        save.hasDrawn = loadData[LEGACY_HAS_DRAWN_LINE].trim().equals("1");
+        // Saves from before seeds were recorded just start new random streams
+        save.seed = loadData.length > LEGACY_SEED_LINE ? Long.parseLong(loadData[LEGACY_SEED_LINE].trim()) : GameRandom.newGame().getSeed();
+        save.moves = 0;
+        save.rules = Rules.STANDARD;
+        save.pendingDraws = 0;
+        return true;
+    }
+
+    private static void addCardIds(SavedGame.Cards cards, String loadData) {
+        for (int id : loadCardIds(loadData)) {
+            cards.add(id);
+        }
     }
 
     private static boolean isCorrectVersionInfo(String versionInfo) {
@@ -113,25 +272,18 @@ public final class DeckManager {
     }
 
     private boolean canLoadGame() {
-        try {
-            if (saveFile.exists()) {
-                List<String> loadData = Files.readAllLines(savePath, Charset.forName("utf-8"));
-                return isCorrectVersionInfo(loadData.get(0));
-            }
-        } catch (Exception ignored) {}
-        return false;
+        return readSave();
     }
 
     private boolean loadGame() {
-        try {
-            List<String> loadData = Files.readAllLines(savePath, Charset.forName("utf-8"));
-            if (isCorrectVersionInfo(loadData.get(0))) {
-                deck = new ArrayList<>(Arrays.asList(loadCards(loadData.get(1))));
-                UnoPanel.loadState(loadData);
-                return true;
-            }
-        } catch (IOException ignored) {}
-        return false;
+        if (!readSave()) {
+            return false;
+        }
+        // Restarting the streams from the seed alone would deal the same cards that were drawn after the deal again
+        moves = save.moves;
+        state = save.toState();
+        UnoPanel.restore(state);
+        return true;
     }
 
     public static String saveCards(List<UnoCard> cards) {
@@ -163,14 +315,31 @@ public final class DeckManager {
     }
 
     public static UnoCard[] loadCards(String loadData) {
-        String[] cardStrings = loadData.split(" ");
-        int length = cardStrings.length;
-        if (length == 1 && cardStrings[0].isEmpty()) {
-            length = 0;
+        int[] ids = loadCardIds(loadData);
+        UnoCard[] result = new UnoCard[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = UnoCard.fromId(ids[i]);
         }
-        UnoCard[] result = new UnoCard[length];
+        return result;
+    }
+
+    public static String saveCardIds(int[] ids, int length) {
+        StringBuilder output = new StringBuilder(length*3);
+        for (int i = 0; i < length; i++) {
+            if (i != 0) {
+                output.append(' ');
+            }
+            output.append(UnoCard.encodeId(ids[i]));
+        }
+        return output.toString();
+    }
+
+    // Cards are always encoded as two characters separated by spaces, so they can be decoded without splitting
+    public static int[] loadCardIds(String loadData) {
+        int length = (loadData.length()+1)/3;
+        int[] result = new int[length];
         for (int i = 0; i < length; i++) {
-            result[i] = UnoCard.decode(cardStrings[i]);
+            result[i] = UnoCard.decodeId(loadData.charAt(i*3), loadData.charAt(i*3+1));
         }
         return result;
     }
@@ -0,0 +1,54 @@
+package manager;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ *   Every game owns its own random streams, all split off from a single seed. Separate streams are used for dealing,
+ * for drawing after the discard pile has been reshuffled, and for decisions made by the computer, so that a game can
+ * be replayed exactly from its seed and many games can run at once without sharing a random number generator.
+ *
+ *   A resumed game can't carry on from where its streams were, so it gets new streams derived from the seed and the
+ * number of moves made before it was saved. The streams are different for every resume point, so a resumed game
+ * doesn't draw the same cards in the same order as it did after the deal.
+ */
+public final class GameRandom {
+    private final long seed;
+
+    private final SplittableRandom deal;
+    private final SplittableRandom reshuffle;
+    private final SplittableRandom decisions;
+
+    public GameRandom(long seed) {
+        this(seed, 0);
+    }
+
+    public GameRandom(long seed, int moves) {
+        this.seed = seed;
+        // The first output of a stream is a hash of its seed, so the roots for different moves have nothing in common
+        SplittableRandom root = new SplittableRandom(moves == 0 ? seed : new SplittableRandom(seed + moves).nextLong());
+        deal = root.split();
+        reshuffle = root.split();
+        decisions = root.split();
+    }
+
+    public static GameRandom newGame() {
+        return new GameRandom(ThreadLocalRandom.current().nextLong());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public SplittableRandom deal() {
+        return deal;
+    }
+
+    public SplittableRandom reshuffle() {
+        return reshuffle;
+    }
+
+    public SplittableRandom decisions() {
+        return decisions;
+    }
+}
@@ -0,0 +1,123 @@
+package manager;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/*
+ *   Every move of a game from where it was dealt (or resumed), so that it can be watched again. Moves are the same
+ * records as in MoveJournal, and the file is laid out as:
+ *
+ *   MAGIC (4)  FORMAT_VERSION (1)  length of the start (4)  the start in SaveFormat
+ *   number of moves (4)  kind and seat (1) and card (1) for every move
+ *   CRC32C of everything before it (4)
+ */
+public final class GameRecord {
+    private static final int MAGIC = 0x554E4F52;
+    // Records from version 1 started before the deal, which was recorded as draws that the rules don't allow
+    private static final byte FORMAT_VERSION = 2;
+    private static final int CHECKSUM_BYTES = 4;
+
+    private final SavedGame start = new SavedGame();
+    private byte[] moves = new byte[256];
+    private int size = 0;
+
+    // Starts a new record from the game, which is copied
+    public void start(SavedGame game) {
+        start.copyFrom(game);
+        size = 0;
+    }
+
+    public void add(int kind, int seat, int id) {
+        if (2*size == moves.length) {
+            moves = Arrays.copyOf(moves, 2*moves.length);
+        }
+        moves[2*size] = (byte) (kind | seat << 4);
+        moves[2*size+1] = (byte) id;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int move) {
+        return moves[2*move] & 15;
+    }
+
+    public int seat(int move) {
+        return moves[2*move] >> 4;
+    }
+
+    public int card(int move) {
+        return moves[2*move+1];
+    }
+
+    public void copyStartInto(SavedGame game) {
+        game.copyFrom(start);
+    }
+
+    // Writes the record over the file, but never leaves half of one behind
+    public void write(Path path) throws IOException {
+        ByteBuffer game = new SaveFormat().encode(start);
+        ByteBuffer data = ByteBuffer.allocate(4 + 1 + 4 + game.remaining() + 4 + 2*size + CHECKSUM_BYTES);
+        data.putInt(MAGIC);
+        data.put(FORMAT_VERSION);
+        data.putInt(game.remaining());
+        data.put(game);
+        data.putInt(size);
+        data.put(moves, 0, 2*size);
+        CRC32C crc = new CRC32C();
+        crc.update(data.array(), 0, data.position());
+        data.putInt((int) crc.getValue());
+        Path tempPath = path.resolveSibling(path.getFileName()+".tmp");
+        Files.write(tempPath, data.array());
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads a record written by write, returning null if it is damaged
+    public static GameRecord read(Path path) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        int length = data.limit();
+        if (length < 4 + 1 + 4 + 4 + CHECKSUM_BYTES) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data.array(), 0, length - CHECKSUM_BYTES);
+        if ((int) crc.getValue() != data.getInt(length - CHECKSUM_BYTES)) {
+            return null;
+        }
+        data.limit(length - CHECKSUM_BYTES);
+        GameRecord record = new GameRecord();
+        try {
+            if (data.getInt() != MAGIC || data.get() != FORMAT_VERSION) {
+                return null;
+            }
+            int gameLength = data.getInt();
+            if (gameLength < 0 || gameLength > data.remaining()) {
+                return null;
+            }
+            ByteBuffer game = data.slice();
+            game.limit(gameLength);
+            if (!new SaveFormat().decode(game, record.start)) {
+                return null;
+            }
+            data.position(data.position() + gameLength);
+            int size = data.getInt();
+            if (size < 0 || 2L*size != data.remaining()) {
+                return null;
+            }
+            record.moves = new byte[Math.max(2*size, 2)];
+            data.get(record.moves, 0, 2*size);
+            record.size = size;
+            return record;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+}
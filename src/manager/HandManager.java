@@ -2,14 +2,16 @@ package manager;
 
 import card.CardGraphics;
 import card.CardObject;
+import card.CardSet;
 import card.UnoCard;
+import engine.HandView;
 
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-public abstract class HandManager {
+public abstract class HandManager implements HandView {
     public static final int MARGIN = 10;
 
     protected static final int SEP_X = CardGraphics.WIDTH + 5;
@@ -17,6 +19,8 @@ public abstract class HandManager {
     static final int SEP_Y_HIDDEN = CardGraphics.HEIGHT/3;
 
     public List<CardObject> hand = new ArrayList<>();
+    // Counts of every known card in the hand, kept in sync with hand
+    public final CardSet handSet = new CardSet();
     public boolean isTurn = false;
 
     public abstract void update(long time);
@@ -24,6 +28,7 @@ public abstract class HandManager {
 
     public void reset() {
         hand.clear();
+        handSet.clear();
         isTurn = false;
     }
 
@@ -33,9 +38,15 @@ public abstract class HandManager {
 
     protected void onRemoveCard(CardObject cardObject, int c) {}
 
+    // The whole hand was replaced without any cards being added or removed one at a time
+    protected void onHandReplaced() {}
+
     public final void addCard(CardObject card, boolean animate) {
         int c = hand.size();
         hand.add(card);
+        if (card.getCard() != null) {
+            handSet.add(card.getCard().getId());
+        }
         if (animate) {
             for (CardObject handCard : hand) {
                 handCard.startAnimating();
@@ -51,10 +62,41 @@ public abstract class HandManager {
             }
         }
         CardObject cardObject = hand.remove(c);
+        if (cardObject.getCard() != null) {
+            handSet.remove(cardObject.getCard().getId());
+        }
         onRemoveCard(cardObject, c);
         return cardObject;
     }
 
+    // Trades every card with the other hand, keeping their order, for when the hands are swapped by the rules
+    public final void swapWith(HandManager other) {
+        List<CardObject> cards = hand;
+        hand = other.hand;
+        other.hand = cards;
+        for (HandManager manager : new HandManager[] {this, other}) {
+            manager.handSet.clear();
+            for (CardObject cardObject : manager.hand) {
+                if (cardObject.getCard() != null) {
+                    manager.handSet.add(cardObject.getCard().getId());
+                }
+                cardObject.startAnimating();
+            }
+            manager.onHandReplaced();
+        }
+    }
+
+    public final void setCard(int c, UnoCard card) {
+        CardObject cardObject = hand.get(c);
+        if (cardObject.getCard() != null) {
+            handSet.remove(cardObject.getCard().getId());
+        }
+        if (card != null) {
+            handSet.add(card.getId());
+        }
+        cardObject.setCard(card);
+    }
+
     public final void startTurn(int opponentHandSize) {
         isTurn = true;
         onTurnStart(opponentHandSize);
@@ -67,10 +109,21 @@ public abstract class HandManager {
         }
     }
 
+    @Override
     public final int count() {
         return hand.size();
     }
 
+    @Override
+    public final int cardAt(int c) {
+        return hand.get(c).getCard().getId();
+    }
+
+    @Override
+    public final CardSet cardSet() {
+        return handSet;
+    }
+
     protected final void sortHandAndAnimateForReveal() {
         UnoCard[] cards = new UnoCard[hand.size()];
         for (int i = 0; i < cards.length; i++) {
@@ -0,0 +1,228 @@
+package manager;
+
+import engine.GameState;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ *   An append-only record of everything that has happened since the last full save, so that saving after a move only
+ * costs a few bytes. The journal is a memory-mapped file, which the operating system keeps even if the game crashes,
+ * and replaying it on top of the last full save gives back the game as it was at the last checkpoint.
+ *
+ *   The header holds the checksum of the save the records follow, so records are never replayed on top of the wrong
+ * save. Every record is four bytes: its kind and seat, a card ID, and a check of both (mixed with its position and the
+ * save's checksum) that is written last, so a record that was only partly written, or was left over from an earlier
+ * journal, is ignored. A zero byte marks the end of the records, and the file is forced to disk at every checkpoint.
+ *
+ *   A new full save only replaces the journal once SaveWriter has written it. Until then, records keep going to the
+ * journal of the last save on disk, and are also kept here to be moved over to the new one. The methods are
+ * synchronized, since SaveWriter says whether a save was written from its own thread.
+ */
+public final class MoveJournal {
+    // A card (always uncolored) was added to a hand from the draw pile
+    public static final int DRAW = 1;
+    // A card (colored if it is a wild card) was played from a hand
+    public static final int PLAY = 2;
+    // A turn started, which is also how a turn is finished
+    public static final int TURN = 3;
+    // The game can be resumed from here, which it can't be in the middle of a move
+    public static final int CHECKPOINT = 4;
+    // A card (always uncolored) was given to a hand from the draw pile outside of the rules, as a penalty
+    public static final int DEAL = 5;
+
+    private static final int MAGIC = 0x554E4F4A;
+    private static final int CAPACITY = 16*1024;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 4;
+
+    private final MappedByteBuffer buffer;
+    private final GameRecord replaying = new GameRecord();
+    private boolean active = false;
+    private int saveChecksum;
+    private int position = HEADER_BYTES;
+    private int checkpoints = 0;
+
+    // Full saves that haven't been written yet (oldest first), each with where its records start in kept
+    private int nextTicket = 0;
+    private int[] savingTickets = new int[4];
+    private int[] savingChecksums = new int[4];
+    private int[] savingFrom = new int[4];
+    private int savingCount = 0;
+    // Kind and seat, then card, for every record since the oldest of them
+    private byte[] kept = new byte[256];
+    private int keptSize = 0;
+
+    public MoveJournal(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // Mappings stay valid after their channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+        }
+    }
+
+    // Checkpoints since the last full save
+    public synchronized int getCheckpoints() {
+        return checkpoints;
+    }
+
+    // Whether records are being kept and there is room for another one
+    public synchronized boolean canAppend() {
+        return active && position + 2*RECORD_BYTES <= CAPACITY;
+    }
+
+    // Whether a full save has been requested that isn't known to be written yet
+    public synchronized boolean isSaving() {
+        return savingCount != 0;
+    }
+
+    // A full save with the given checksum was requested, so records are kept for it until saveFinished gets the ticket
+    public synchronized int saving(int saveChecksum) {
+        if (savingCount == savingTickets.length) {
+            savingTickets = Arrays.copyOf(savingTickets, 2*savingCount);
+            savingChecksums = Arrays.copyOf(savingChecksums, 2*savingCount);
+            savingFrom = Arrays.copyOf(savingFrom, 2*savingCount);
+        }
+        savingTickets[savingCount] = ++nextTicket;
+        savingChecksums[savingCount] = saveChecksum;
+        savingFrom[savingCount] = keptSize;
+        savingCount++;
+        return nextTicket;
+    }
+
+    // Starts the journal over after the save if it was written, and drops any records that are no longer needed
+    public synchronized void saveFinished(int ticket, boolean written) {
+        int s = 0;
+        while (s < savingCount && savingTickets[s] != ticket) {
+            s++;
+        }
+        // The save was requested before the journal was cleared
+        if (s == savingCount) {
+            return;
+        }
+        if (written) {
+            start(savingChecksums[s]);
+            for (int at = savingFrom[s]; at < keptSize; at += 2) {
+                write(kept[at], kept[at+1]);
+            }
+        }
+        int dropped = s+1 < savingCount ? savingFrom[s+1] : keptSize;
+        System.arraycopy(kept, dropped, kept, 0, keptSize - dropped);
+        keptSize -= dropped;
+        savingCount -= s+1;
+        for (int i = 0; i < savingCount; i++) {
+            savingTickets[i] = savingTickets[i+s+1];
+            savingChecksums[i] = savingChecksums[i+s+1];
+            savingFrom[i] = savingFrom[i+s+1] - dropped;
+        }
+    }
+
+    private void forgetSaving() {
+        savingCount = 0;
+        keptSize = 0;
+    }
+
+    // Starts over after a full save with the given checksum
+    private void start(int saveChecksum) {
+        buffer.putInt(0, 0);
+        buffer.put(HEADER_BYTES, (byte) 0);
+        buffer.putInt(4, saveChecksum);
+        buffer.putInt(0, MAGIC);
+        buffer.force();
+        this.saveChecksum = saveChecksum;
+        position = HEADER_BYTES;
+        checkpoints = 0;
+        active = true;
+    }
+
+    // Stops keeping records until the next full save, such as when a game ends
+    public synchronized void clear() {
+        buffer.putInt(0, 0);
+        active = false;
+        forgetSaving();
+    }
+
+    public synchronized void append(int kind, int seat, int id) {
+        byte first = (byte) (kind | seat << 4);
+        if (savingCount != 0) {
+            if (keptSize == kept.length) {
+                kept = Arrays.copyOf(kept, 2*keptSize);
+            }
+            kept[keptSize++] = first;
+            kept[keptSize++] = (byte) id;
+        }
+        write(first, (byte) id);
+    }
+
+    private void write(byte first, byte id) {
+        if (!canAppend()) {
+            return;
+        }
+        buffer.put(position+RECORD_BYTES, (byte) 0);
+        buffer.put(position, first);
+        buffer.put(position+1, id);
+        buffer.putShort(position+2, check(first, id, position, saveChecksum));
+        position += RECORD_BYTES;
+        if ((first & 15) == CHECKPOINT) {
+            checkpoints++;
+            buffer.force();
+        }
+    }
+
+    private static short check(byte first, byte id, int position, int saveChecksum) {
+        int hash = ((saveChecksum*31 + position)*31 + first)*31 + id;
+        return (short) (hash ^ hash >>> 16 | 1);
+    }
+
+    /*
+     *   Replays the records that follow the save with the given checksum on top of it, returning false (and leaving
+     * game as it was) if the journal belongs to another save. Records after the last checkpoint are dropped, and
+     * appending carries on from there.
+     */
+    public synchronized boolean replay(int saveChecksum, SavedGame game) {
+        active = false;
+        forgetSaving();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != saveChecksum) {
+            return false;
+        }
+        this.saveChecksum = saveChecksum;
+        // A play is replayed together with the draws after it, so the records are read before any of them are applied
+        replaying.start(game);
+        for (int at = HEADER_BYTES; at + 2*RECORD_BYTES <= CAPACITY; at += RECORD_BYTES) {
+            byte first = buffer.get(at);
+            byte id = buffer.get(at+1);
+            if (first == 0 || buffer.getShort(at+2) != check(first, id, at, saveChecksum)) {
+                break;
+            }
+            replaying.add(first & 15, first >> 4, id);
+        }
+        GameState state = game.toState();
+        Replayer replayer = new Replayer(state);
+        int moves = game.moves;
+        int end = HEADER_BYTES;
+        checkpoints = 0;
+        for (int i = 0, used; i < replaying.size(); i += used) {
+            if (replaying.kind(i) == CHECKPOINT) {
+                game.copyFrom(state);
+                game.moves = moves;
+                end = HEADER_BYTES + (i+1)*RECORD_BYTES;
+                checkpoints++;
+                used = 1;
+            } else {
+                used = replayer.apply(replaying, i);
+                if (used == 0) {
+                    break;
+                }
+                moves += used;
+            }
+        }
+        buffer.put(end, (byte) 0);
+        position = end;
+        active = true;
+        return true;
+    }
+}
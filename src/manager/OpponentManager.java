@@ -2,8 +2,11 @@ package manager;
 
 import card.CardGraphics;
 import card.CardObject;
+import card.DrawPile;
+import card.CardSet;
 import card.UnoCard;
 import display.UnoPanel;
+import engine.CardSource;
 
 import java.awt.*;
 import java.util.List;
@@ -16,26 +19,24 @@ public abstract class OpponentManager extends HandManager {
 
     private void updateCS() {
         columns = Math.max((UnoPanel.width - 2*MARGIN)/SEP_X, 3);
-        sepY = UnoPanel.isGameOver() && !hand.isEmpty() && hand.get(0).getCard() != null ? SEP_Y : SEP_Y_HIDDEN;
+        sepY = revealsHand() && !hand.isEmpty() && hand.get(0).getCard() != null ? SEP_Y : SEP_Y_HIDDEN;
     }
 
     public abstract boolean playerCanStart();
 
-    public abstract UnoCard drawVisibleCard();
-
     @Override
     public void update(long time) {
         updateCS();
 
         int indent = (UnoPanel.width - Math.min(columns, hand.size())*SEP_X + 5)/2;
-        boolean gameOver = UnoPanel.isGameOver();
+        boolean reveal = revealsHand() || UnoPanel.isPeeking();
 
         for (int c = 0; c < hand.size(); c++) {
             int row = c/columns;
             int column = c%columns;
             float x = indent + SEP_X*column;
             float y = MARGIN + sepY*row;
-            hand.get(c).update(x, y, gameOver || UnoPanel.isPeeking(), time);
+            hand.get(c).update(x, y, reveal, time);
         }
     }
 
@@ -50,12 +51,39 @@ public abstract class OpponentManager extends HandManager {
         return MARGIN + sepY*rows + CardGraphics.HEIGHT;
     }
 
-    public UnoCard drawHiddenCard() {
-        return drawVisibleCard();
+    // Whether the cards in the hand are shown face up
+    protected boolean revealsHand() {
+        return UnoPanel.isGameOver();
+    }
+
+    // Whether the cards in the hand are known here at all, rather than stand-ins until they are played
+    public boolean knowsHand() {
+        return true;
+    }
+
+    // Where the game's cards are drawn from, or null to draw them at random from its own draw pile
+    public CardSource cardSource() {
+        return null;
+    }
+
+    // Whether the player may pay the penalty to see this hand, which needs both cards to be dealt by this side's engine
+    public boolean canPeek() {
+        return true;
     }
 
-    public int cardsInDeck() {
-        return deckManager.count();
+    // Fills unseen with the cards the player can't see, or returns false if they aren't known here
+    public boolean unseenCards(DrawPile unseen) {
+        if (deckManager == null) {
+            return false;
+        }
+        deckManager.copyDeckInto(unseen);
+        for (CardObject cardObject : hand) {
+            if (cardObject.getCard() == null) {
+                return false;
+            }
+            unseen.add(cardObject.getCard().getId());
+        }
+        return true;
     }
 
     public void playerDrawCard() {}
@@ -64,6 +92,15 @@ public abstract class OpponentManager extends HandManager {
 
     public void playerFinishTurnEarly() {}
 
+    // The hands were just swapped by the rules, so the player holds playerHand and this hand will be hand once it is shown
+    public void handsSwapped(CardSet playerHand, CardSet hand) {}
+
+    // The player's turn started while this hand holds a card it could play out of turn under the jump-in rules
+    public void jumpInPossible() {}
+
+    // The draw pile ran out and these cards were shuffled into it, only valid until this returns
+    public void deckRefilled(int[] ids, int length) {}
+
     public void newGame(UnoCard topOfDeck, UnoCard[] hand) {}
 
     public void restore(UnoCard topOfDeck, UnoCard[] hand, int playerSize, List<UnoCard> discard, boolean playerWillStart, boolean hasDrawn) {}
@@ -74,6 +111,36 @@ public abstract class OpponentManager extends HandManager {
 
     public void canSave() {}
 
+    // Returns true if the key was used here instead of by the player
+    public boolean keyTyped(char c) {
+        return false;
+    }
+
+    // These record the game for its journal and replay, if it is being saved here
+    public void cardDrawn(UnoCard card, boolean toPlayer) {
+        if (deckManager != null && card != null) {
+            deckManager.record(MoveJournal.DRAW, toPlayer, card.getId());
+        }
+    }
+
+    public void cardDealt(UnoCard card, boolean toPlayer) {
+        if (deckManager != null && card != null) {
+            deckManager.record(MoveJournal.DEAL, toPlayer, card.getId());
+        }
+    }
+
+    public void cardPlayed(UnoCard card, boolean byPlayer) {
+        if (deckManager != null) {
+            deckManager.record(MoveJournal.PLAY, byPlayer, card.getId());
+        }
+    }
+
+    public void turnStarted(boolean playerTurn) {
+        if (deckManager != null) {
+            deckManager.record(MoveJournal.TURN, playerTurn, 0);
+        }
+    }
+
     public boolean fastReset() {
         return false;
     }
@@ -0,0 +1,100 @@
+package manager;
+
+import engine.GameState;
+
+import java.util.Arrays;
+
+/*
+ *   Finds the position after any number of moves of a GameRecord without replaying it from the start. A move is what
+ * Replayer applies at once, which is one record except for a play that made someone draw. The position after every
+ * KEYFRAME_INTERVAL moves is kept, so seeking copies the nearest one before the target and applies at most
+ * KEYFRAME_INTERVAL-1 moves to it, however long the game was.
+ *
+ *   Turns are counted by the records that start them, so turn t starts right after the t-th of those (and turn 0 is
+ * the deal).
+ */
+public final class ReplayIndex {
+    public static final int KEYFRAME_INTERVAL = Integer.getInteger("uno.replay.keyframes", 32);
+
+    private final GameRecord record;
+    private final int interval;
+    private final GameState[] keyframes;
+    // The record each move starts at
+    private final int[] moveStarts;
+    private final int[] turnStarts;
+    private final int moves;
+
+    public ReplayIndex(GameRecord record) {
+        this(record, KEYFRAME_INTERVAL);
+    }
+
+    public ReplayIndex(GameRecord record, int interval) {
+        this.record = record;
+        this.interval = interval;
+        SavedGame start = new SavedGame();
+        record.copyStartInto(start);
+        GameState game = start.toState();
+        Replayer replayer = new Replayer(game);
+        keyframes = new GameState[record.size()/interval + 1];
+        int[] moveStarts = new int[record.size()+1];
+        int[] turnStarts = new int[16];
+        int turns = 1;
+        int move = 0;
+        for (int at = 0; at < record.size(); at = moveStarts[++move]) {
+            if (move % interval == 0) {
+                keyframes[move/interval] = new GameState(game);
+            }
+            // A damaged record would make every later position wrong, so the replay just ends before it
+            int used = replayer.apply(record, at);
+            if (used == 0) {
+                break;
+            }
+            if (record.kind(at) == MoveJournal.TURN) {
+                if (turns == turnStarts.length) {
+                    turnStarts = Arrays.copyOf(turnStarts, 2*turns);
+                }
+                turnStarts[turns++] = move+1;
+            }
+            moveStarts[move+1] = at + used;
+        }
+        if (move % interval == 0 && keyframes[move/interval] == null) {
+            keyframes[move/interval] = new GameState(game);
+        }
+        moves = move;
+        this.moveStarts = Arrays.copyOf(moveStarts, move+1);
+        this.turnStarts = Arrays.copyOf(turnStarts, turns);
+    }
+
+    public int moves() {
+        return moves;
+    }
+
+    public int turns() {
+        return turnStarts.length;
+    }
+
+    // The move that turn starts at
+    public int turnStart(int turn) {
+        return turnStarts[turn];
+    }
+
+    // The turn that is being played after the moves
+    public int turnAt(int move) {
+        int turn = Arrays.binarySearch(turnStarts, move);
+        return turn >= 0 ? turn : -turn-2;
+    }
+
+    // The position after the moves
+    public GameState seek(int move) {
+        if (move < 0 || move > moves) {
+            throw new IllegalArgumentException("error: move "+move+" is not between 0 and "+moves);
+        }
+        int keyframe = move/interval;
+        GameState game = new GameState(keyframes[keyframe]);
+        Replayer replayer = new Replayer(game);
+        for (int m = keyframe*interval; m < move; m++) {
+            replayer.apply(record, moveStarts[m]);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,111 @@
+package manager;
+
+import card.UnoCard;
+import engine.GameEngine;
+import engine.GameState;
+
+/*
+ *   Plays the records of a MoveJournal or GameRecord through a GameEngine, so that a recorded game is replayed by the
+ * same rules it was played by. Cards are drawn in the order they were recorded instead of at random, and the penalty
+ * draws of a play are the records right after it, so a play is always applied together with them. A play by a seat
+ * whose turn it isn't is a jump-in.
+ */
+final class Replayer {
+    private final GameState state;
+    private final GameState before;
+    private final GameEngine engine;
+
+    private GameRecord records;
+    // The record the next card is drawn from, and the kind it must be
+    private int next;
+    private int drawKind;
+
+    Replayer(GameState state) {
+        this.state = state;
+        before = new GameState(state);
+        engine = new GameEngine(state);
+        engine.setSource(this::draw);
+    }
+
+    private int draw(GameState state, int seat) {
+        if (next >= records.size() || records.kind(next) != drawKind || records.seat(next) != seat) {
+            throw new IllegalStateException("error: a card was drawn that wasn't recorded");
+        }
+        int id = records.card(next++);
+        if (id < 0 || id >= UnoCard.ID_COUNT) {
+            throw new IllegalStateException("error: card "+id+" doesn't exist");
+        }
+        state.getDeck().remove(id);
+        return id;
+    }
+
+    // Applies the record at i, returning how many records were used, or 0 (leaving the state alone) if it can't have happened
+    int apply(GameRecord records, int i) {
+        this.records = records;
+        int kind = records.kind(i);
+        int seat = records.seat(i);
+        int id = records.card(i);
+        if (seat < 0 || seat >= state.seats() || id < 0 || id >= UnoCard.ID_COUNT || state.isOver()) {
+            return 0;
+        }
+        before.copyFrom(state);
+        next = i+1;
+        try {
+            switch (kind) {
+            case MoveJournal.DRAW:
+                if (seat != state.getTurn()) {
+                    return 0;
+                }
+                next = i;
+                drawKind = MoveJournal.DRAW;
+                engine.draw();
+                break;
+            case MoveJournal.DEAL:
+                next = i;
+                drawKind = MoveJournal.DEAL;
+                engine.deal(seat);
+                break;
+            case MoveJournal.PLAY: {
+                UnoCard card = UnoCard.fromId(id);
+                int c = state.getHand(seat).lastIndexOf(card.withColor(UnoCard.NO_COLOR).getId());
+                if (c < 0) {
+                    return 0;
+                }
+                drawKind = MoveJournal.DRAW;
+                if (seat == state.getTurn()) {
+                    engine.play(c, card.getColorCode());
+                } else if (engine.canJumpIn(seat, c)) {
+                    engine.jumpIn(seat, c);
+                } else {
+                    return 0;
+                }
+                break;
+            }
+            case MoveJournal.TURN:
+                if (seat == state.getTurn()) {
+                    // Turns that start by playing again were started by the play itself
+                    if (state.hasDrawn()) {
+                        return 0;
+                    }
+                } else if (state.hasDrawn()) {
+                    engine.finishTurn();
+                } else if (i == 0) {
+                    engine.start(seat);
+                } else {
+                    return 0;
+                }
+                if (state.getTurn() != seat) {
+                    state.copyFrom(before);
+                    return 0;
+                }
+                break;
+            default:
+                return 0;
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            state.copyFrom(before);
+            return 0;
+        }
+        return next-i;
+    }
+}
@@ -0,0 +1,155 @@
+package manager;
+
+import card.UnoCard;
+import display.Uno;
+import engine.Rules;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/*
+ *   The binary format of saved games. Every card is a single byte holding its ID, and the file is laid out as:
+ *
+ *   MAGIC (4 bytes)  FORMAT_VERSION (1)  game version (4)  flags (1)  seed (8)  moves (4)  top of deck (1)
+ *   rule variants (1)  pending draws (1)
+ *   deck, discard pile, player's hand, opponent's hand (each a 2-byte count followed by one byte per card)
+ *   CRC32C of everything before it (4)
+ *
+ *   A file that is cut short, has a bad checksum, or has anything else wrong with it is rejected by decode instead of
+ * being partly loaded. One SaveFormat reuses its buffer for every save, so it must only be used by one thread at a time.
+ * Saves from version 1 have no move count, and are loaded as if no moves had been made. Saves from before version 3 have
+ * no rules, and are loaded as standard games with nothing stacked.
+ */
+public final class SaveFormat {
+    static final int MAGIC = 0x554E4F53;
+    static final byte FORMAT_VERSION = 3;
+    private static final byte NO_MOVES_VERSION = 1;
+    private static final byte NO_RULES_VERSION = 2;
+
+    private static final int FLAG_PLAYER_TURN = 1;
+    private static final int FLAG_HAS_DRAWN = 2;
+
+    private static final int HEADER_BYTES = 4 + 1 + 4 + 1 + 8 + 4 + 1 + 2;
+    private static final int NO_MOVES_HEADER_BYTES = HEADER_BYTES - 4 - 2;
+    private static final int SECTIONS = 4;
+    private static final int CHECKSUM_BYTES = 4;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(512);
+    private final CRC32C crc = new CRC32C();
+
+    // Returns the encoded game, which is only valid until the next call
+    public ByteBuffer encode(SavedGame game) {
+        int size = HEADER_BYTES + 2*SECTIONS + game.deck.size() + game.discard.size() + game.playerHand.size()
+            + game.opponentHand.size() + CHECKSUM_BYTES;
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, 2*buffer.capacity()));
+        }
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.put(FORMAT_VERSION);
+        buffer.putInt(Uno.VERSION);
+        buffer.put((byte) ((game.playerTurn ? FLAG_PLAYER_TURN : 0) | (game.hasDrawn ? FLAG_HAS_DRAWN : 0)));
+        buffer.putLong(game.seed);
+        buffer.putInt(game.moves);
+        buffer.put((byte) game.topOfDeck);
+        buffer.put((byte) game.rules.getVariants());
+        buffer.put((byte) game.pendingDraws);
+        putCards(game.deck);
+        putCards(game.discard);
+        putCards(game.playerHand);
+        putCards(game.opponentHand);
+        crc.reset();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private void putCards(SavedGame.Cards cards) {
+        buffer.putShort((short) cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            buffer.put((byte) cards.get(i));
+        }
+    }
+
+    // Whether the data starts like a saved game, without checking the rest of it
+    public static boolean hasMagic(ByteBuffer data) {
+        return data.remaining() >= 4 && data.getInt(data.position()) == MAGIC;
+    }
+
+    // Fills game from the data, returning false (and leaving game in an unknown state) if it isn't a valid save
+    public boolean decode(ByteBuffer data, SavedGame game) {
+        int start = data.position();
+        int length = data.remaining();
+        if (length < NO_MOVES_HEADER_BYTES + 2*SECTIONS + CHECKSUM_BYTES) {
+            return false;
+        }
+        crc.reset();
+        ByteBuffer checked = data.duplicate();
+        checked.limit(start + length - CHECKSUM_BYTES);
+        crc.update(checked);
+        if ((int) crc.getValue() != data.getInt(start + length - CHECKSUM_BYTES)) {
+            return false;
+        }
+        ByteBuffer input = data.duplicate();
+        input.limit(start + length - CHECKSUM_BYTES);
+        try {
+            if (input.getInt() != MAGIC) {
+                return false;
+            }
+            byte version = input.get();
+            if (version < NO_MOVES_VERSION || version > FORMAT_VERSION || input.getInt() < Uno.BACK_COMPAT_VERSION) {
+                return false;
+            }
+            int flags = input.get();
+            game.playerTurn = (flags & FLAG_PLAYER_TURN) != 0;
+            game.hasDrawn = (flags & FLAG_HAS_DRAWN) != 0;
+            game.seed = input.getLong();
+            game.moves = version == NO_MOVES_VERSION ? 0 : input.getInt();
+            if (game.moves < 0) {
+                return false;
+            }
+            game.topOfDeck = input.get();
+            if (!isCard(game.topOfDeck)) {
+                return false;
+            }
+            int variants = version <= NO_RULES_VERSION ? 0 : input.get();
+            if ((variants & ~Rules.ALL) != 0) {
+                return false;
+            }
+            game.rules = Rules.of(variants);
+            game.pendingDraws = version <= NO_RULES_VERSION ? 0 : input.get();
+            if (game.pendingDraws < 0) {
+                return false;
+            }
+            if (!getCards(input, game.deck) || !getCards(input, game.discard)
+                    || !getCards(input, game.playerHand) || !getCards(input, game.opponentHand)) {
+                return false;
+            }
+            return !input.hasRemaining();
+        } catch (BufferUnderflowException e) {
+            return false;
+        }
+    }
+
+    private static boolean getCards(ByteBuffer input, SavedGame.Cards cards) {
+        cards.clear();
+        int count = input.getShort() & 0xFFFF;
+        if (count > input.remaining()) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int id = input.get();
+            if (!isCard(id)) {
+                return false;
+            }
+            cards.add(id);
+        }
+        return true;
+    }
+
+    private static boolean isCard(int id) {
+        return id >= 0 && id < UnoCard.ID_COUNT;
+    }
+}
@@ -0,0 +1,571 @@
+package manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/*
+ *   Saved games for many games at once, looked up by a game ID. Every save is appended to a single data file, and an
+ * index in memory maps each ID to its latest record, so loading a game is one read no matter how many games there are.
+ * Saves of different games can be written by different threads at the same time, since each one only reserves its own
+ * space at the end of the file.
+ *
+ *   A record is laid out as:
+ *
+ *   RECORD_MAGIC (4)  length (4)  time (8)  flags (1)  player's cards (2)  opponent's cards (2)  ID length (2)  ID
+ *   the game in SaveFormat (empty if the game was removed)
+ *   CRC32C of everything before it (4)
+ *
+ *   Space is reserved before a record is written, so a crash can leave a damaged record (or a gap) in front of records
+ * that were written after it. Opening the store skips over anything damaged by looking for the next RECORD_MAGIC that
+ * starts a record with the right checksum, and only what is left after the last good record is cut off.
+ *
+ *   The hand sizes are kept outside of the game so that listing the games only needs the index. Replaced and removed
+ * games leave dead records behind, which a background thread copies the live records away from once there are more
+ * dead bytes than live ones. The index is written next to the data file when the store is closed or compacted, and on
+ * opening, only records after the ones it covers are read (or every record, if the index doesn't match the data file).
+ *
+ *   Nothing in the game uses this yet, since the local and web games each only have one save. It is meant for a
+ * server hosting many games at once.
+ */
+public final class SaveStore implements Closeable {
+    private static final int MAGIC = 0x554E4F44;
+    private static final int INDEX_MAGIC = 0x554E4F49;
+    private static final int RECORD_MAGIC = 0x554E4F47;
+    private static final byte FORMAT_VERSION = 2;
+
+    private static final int FLAG_REMOVED = 1;
+    private static final int FLAG_PLAYER_TURN = 2;
+
+    private static final int HEADER_BYTES = 4 + 1 + 8;
+    private static final int CHECKSUM_BYTES = 4;
+
+    // Where each field of a record starts
+    private static final int LENGTH_OFFSET = 4;
+    private static final int TIME_OFFSET = LENGTH_OFFSET + 4;
+    private static final int FLAGS_OFFSET = TIME_OFFSET + 8;
+    private static final int PLAYER_CARDS_OFFSET = FLAGS_OFFSET + 1;
+    private static final int OPPONENT_CARDS_OFFSET = PLAYER_CARDS_OFFSET + 2;
+    private static final int KEY_LENGTH_OFFSET = OPPONENT_CARDS_OFFSET + 2;
+    private static final int KEY_OFFSET = KEY_LENGTH_OFFSET + 2;
+    private static final int RECORD_OVERHEAD = KEY_OFFSET + CHECKSUM_BYTES;
+
+    // How much is read at a time while looking for the next record after a damaged one
+    private static final int SEARCH_BYTES = 64*1024;
+
+    // Small stores aren't worth compacting no matter how much of them is dead
+    private static final long MIN_DEAD_BYTES = 64*1024;
+
+    // What the index knows about the latest record for a game
+    public static final class Summary {
+        public final String id;
+        public final long time;
+        public final int playerCards;
+        public final int opponentCards;
+        public final boolean playerTurn;
+
+        final boolean removed;
+        final long offset;
+        final int length;
+
+        Summary(String id, long time, int flags, int playerCards, int opponentCards, long offset, int length) {
+            this.id = id;
+            this.time = time;
+            this.playerCards = playerCards;
+            this.opponentCards = opponentCards;
+            playerTurn = (flags & FLAG_PLAYER_TURN) != 0;
+            removed = (flags & FLAG_REMOVED) != 0;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        Summary movedTo(long offset) {
+            return new Summary(id, time, flags(), playerCards, opponentCards, offset, length);
+        }
+
+        int flags() {
+            return (playerTurn ? FLAG_PLAYER_TURN : 0) | (removed ? FLAG_REMOVED : 0);
+        }
+
+        int liveBytes() {
+            return removed ? 0 : length;
+        }
+    }
+
+    private final Path path;
+    private final Path tempPath;
+    private final Path indexPath;
+    private final Path indexTempPath;
+
+    // Removed games stay in the index until compaction, so that older records can't take their place
+    private final ConcurrentHashMap<String, Summary> index = new ConcurrentHashMap<>();
+    private final AtomicLong end = new AtomicLong();
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    // Saves and loads share the lock, and compaction takes it alone to swap in the compacted file
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compacting = new Object();
+    private final ThreadLocal<SaveFormat> formats = ThreadLocal.withInitial(SaveFormat::new);
+
+    private FileChannel channel;
+    private long fileId;
+    private boolean closed = false;
+    private boolean compactionRequested = false;
+
+    public SaveStore(Path path) throws IOException {
+        this.path = path;
+        tempPath = path.resolveSibling(path.getFileName()+".tmp");
+        indexPath = path.resolveSibling(path.getFileName()+".index");
+        indexTempPath = path.resolveSibling(path.getFileName()+".index.tmp");
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                fileId = new SplittableRandom().nextLong();
+                writeHeader(channel, fileId);
+                channel.force(true);
+                end.set(HEADER_BYTES);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                readFully(channel, header, 0);
+                if (header.getInt(0) != MAGIC || header.get(4) != FORMAT_VERSION) {
+                    throw new IOException("not a save store: "+path);
+                }
+                fileId = header.getLong(5);
+                scan(readIndex());
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        Thread thread = new Thread(this::compactLoop);
+        thread.setName("saveCompactor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Saves the game under the ID, replacing any earlier save of it
+    public void put(String id, SavedGame game) throws IOException {
+        int flags = game.playerTurn ? FLAG_PLAYER_TURN : 0;
+        append(id, flags, game.playerHand.size(), game.opponentHand.size(), formats.get().encode(game));
+    }
+
+    public void remove(String id) throws IOException {
+        Summary summary = index.get(id);
+        if (summary != null && !summary.removed) {
+            append(id, FLAG_REMOVED, 0, 0, ByteBuffer.allocate(0));
+        }
+    }
+
+    // Fills game with the latest save of the ID, returning false if there isn't one or it is damaged
+    public boolean get(String id, SavedGame game) throws IOException {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Summary summary = index.get(id);
+            if (summary == null || summary.removed) {
+                return false;
+            }
+            ByteBuffer record = ByteBuffer.allocate(summary.length);
+            readFully(channel, record, summary.offset);
+            if (parse(record, summary.offset) == null) {
+                return false;
+            }
+            record.limit(summary.length - CHECKSUM_BYTES);
+            record.position(KEY_OFFSET + (record.getShort(KEY_LENGTH_OFFSET) & 0xFFFF));
+            return formats.get().decode(record, game);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every saved game, sorted by ID, without reading any of them
+    public List<Summary> list() {
+        List<Summary> games = new ArrayList<>(index.size());
+        for (Summary summary : index.values()) {
+            if (!summary.removed) {
+                games.add(summary);
+            }
+        }
+        games.sort(Comparator.comparing(summary -> summary.id));
+        return games;
+    }
+
+    // Bytes taken up by records that have been replaced or removed
+    public long getDeadBytes() {
+        return end.get() - HEADER_BYTES - liveBytes.get();
+    }
+
+    private void append(String id, int flags, int playerCards, int opponentCards, ByteBuffer game)
+            throws IOException {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length > 0xFFFF) {
+            throw new IllegalArgumentException("error: game IDs must be at most 65535 bytes long");
+        }
+        int length = RECORD_OVERHEAD + key.length + game.remaining();
+        long time = System.currentTimeMillis();
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(RECORD_MAGIC);
+        record.putInt(length);
+        record.putLong(time);
+        record.put((byte) flags);
+        record.putShort((short) playerCards);
+        record.putShort((short) opponentCards);
+        record.putShort((short) key.length);
+        record.put(key);
+        record.put(game);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            long offset = end.getAndAdd(length);
+            writeFully(channel, record, offset);
+            channel.force(false);
+            publish(new Summary(id, time, flags, playerCards, opponentCards, offset, length));
+        } finally {
+            lock.readLock().unlock();
+        }
+        long dead = getDeadBytes();
+        if (dead >= MIN_DEAD_BYTES && dead > liveBytes.get()) {
+            synchronized (this) {
+                compactionRequested = true;
+                notifyAll();
+            }
+        }
+    }
+
+    // Records for the same game may finish being written out of order, so the one furthest into the file wins
+    private void publish(Summary summary) {
+        index.compute(summary.id, (id, old) -> {
+            if (old != null && old.offset > summary.offset) {
+                return old;
+            }
+            liveBytes.addAndGet(summary.liveBytes() - (old == null ? 0 : old.liveBytes()));
+            return summary;
+        });
+    }
+
+    // Reads the record at the start of the buffer, returning null if it is damaged
+    private static Summary parse(ByteBuffer record, long offset) {
+        if (record.limit() < RECORD_OVERHEAD || record.getInt(0) != RECORD_MAGIC) {
+            return null;
+        }
+        int length = record.getInt(LENGTH_OFFSET);
+        if (length < RECORD_OVERHEAD || length > record.limit()) {
+            return null;
+        }
+        int keyLength = record.getShort(KEY_LENGTH_OFFSET) & 0xFFFF;
+        if (RECORD_OVERHEAD + keyLength > length) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 0, length - CHECKSUM_BYTES);
+        if ((int) crc.getValue() != record.getInt(length - CHECKSUM_BYTES)) {
+            return null;
+        }
+        String id = new String(record.array(), KEY_OFFSET, keyLength, StandardCharsets.UTF_8);
+        return new Summary(id, record.getLong(TIME_OFFSET), record.get(FLAGS_OFFSET),
+            record.getShort(PLAYER_CARDS_OFFSET) & 0xFFFF, record.getShort(OPPONENT_CARDS_OFFSET) & 0xFFFF, offset,
+            length);
+    }
+
+    // Reads the record at the position, returning null if it is damaged or cut short
+    private Summary readRecord(long position, long size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(KEY_OFFSET);
+        readFully(channel, header, position);
+        int length = header.getInt(LENGTH_OFFSET);
+        if (header.getInt(0) != RECORD_MAGIC || length < RECORD_OVERHEAD || length > size - position) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(channel, record, position);
+        return parse(record, position);
+    }
+
+    // Where RECORD_MAGIC next appears after the position, or size if it doesn't
+    private long findMagic(long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BYTES);
+        for (long start = position+1; start + 4 <= size; start += SEARCH_BYTES - 3) {
+            buffer.clear();
+            buffer.limit((int) Math.min(SEARCH_BYTES, size - start));
+            readFully(channel, buffer, start);
+            for (int i = 0; i + 4 <= buffer.limit(); i++) {
+                if (buffer.getInt(i) == RECORD_MAGIC) {
+                    return start + i;
+                }
+            }
+        }
+        return size;
+    }
+
+    /*
+     *   Reads every record from the position on. Damaged records are skipped, since records written after them may be
+     * fine, and only whatever is left after the last good record is cut off so that new records are written there.
+     */
+    private void scan(long position) throws IOException {
+        long size = channel.size();
+        long goodEnd = position;
+        long skipped = 0;
+        while (position + RECORD_OVERHEAD <= size) {
+            Summary summary = readRecord(position, size);
+            if (summary == null) {
+                position = findMagic(position, size);
+                continue;
+            }
+            skipped += position - goodEnd;
+            publish(summary);
+            position += summary.length;
+            goodEnd = position;
+        }
+        if (skipped > 0) {
+            System.err.println("Skipped "+skipped+" damaged bytes in the save store.");
+        }
+        if (goodEnd < size) {
+            System.err.println("Ignoring "+(size - goodEnd)+" damaged bytes at the end of the save store.");
+            channel.truncate(goodEnd);
+        }
+        end.set(goodEnd);
+    }
+
+    // Loads the index if it matches the data file, returning where the records it doesn't cover start
+    private long readIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return HEADER_BYTES;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        try {
+            int length = data.limit();
+            CRC32C crc = new CRC32C();
+            crc.update(data.array(), 0, length - CHECKSUM_BYTES);
+            if ((int) crc.getValue() != data.getInt(length - CHECKSUM_BYTES) || data.getInt() != INDEX_MAGIC
+                    || data.get() != FORMAT_VERSION || data.getLong() != fileId) {
+                return HEADER_BYTES;
+            }
+            long indexedEnd = data.getLong();
+            if (indexedEnd > channel.size()) {
+                return HEADER_BYTES;
+            }
+            for (int i = 0, count = data.getInt(); i < count; i++) {
+                byte[] key = new byte[data.getShort() & 0xFFFF];
+                data.get(key);
+                publish(new Summary(new String(key, StandardCharsets.UTF_8), data.getLong(), data.get(),
+                    data.getShort() & 0xFFFF, data.getShort() & 0xFFFF, data.getLong(), data.getInt()));
+            }
+            return indexedEnd;
+        } catch (RuntimeException e) {
+            index.clear();
+            liveBytes.set(0);
+            return HEADER_BYTES;
+        }
+    }
+
+    private void writeIndex(Map<String, Summary> games, long fileId, long indexedEnd) throws IOException {
+        List<byte[]> keys = new ArrayList<>(games.size());
+        int length = 4 + 1 + 8 + 8 + 4 + CHECKSUM_BYTES;
+        for (Summary summary : games.values()) {
+            byte[] key = summary.id.getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            length += 2 + key.length + 8 + 1 + 2 + 2 + 8 + 4;
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        data.putInt(INDEX_MAGIC);
+        data.put(FORMAT_VERSION);
+        data.putLong(fileId);
+        data.putLong(indexedEnd);
+        data.putInt(games.size());
+        int i = 0;
+        for (Summary summary : games.values()) {
+            byte[] key = keys.get(i++);
+            data.putShort((short) key.length);
+            data.put(key);
+            data.putLong(summary.time);
+            data.put((byte) summary.flags());
+            data.putShort((short) summary.playerCards);
+            data.putShort((short) summary.opponentCards);
+            data.putLong(summary.offset);
+            data.putInt(summary.length);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data.array(), 0, data.position());
+        data.putInt((int) crc.getValue());
+        data.flip();
+        try (FileChannel output = FileChannel.open(indexTempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(output, data, 0);
+            output.force(true);
+        }
+        Files.move(indexTempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     *   Copies the live records to a new file and replaces the data file with it. Saves carry on while most of the
+     * records are copied, and only the games saved in the meantime are copied again once saves have been stopped.
+     */
+    public void compact() throws IOException {
+        synchronized (compacting) {
+            long newFileId = new SplittableRandom().nextLong();
+            Map<Summary, Summary> moved = new IdentityHashMap<>();
+            boolean replaced = false;
+            FileChannel output = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                writeHeader(output, newFileId);
+                long position = HEADER_BYTES;
+                lock.readLock().lock();
+                try {
+                    checkOpen();
+                    for (Summary summary : index.values()) {
+                        if (!summary.removed) {
+                            moved.put(summary, copy(summary, output, position));
+                            position += summary.length;
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                lock.writeLock().lock();
+                try {
+                    checkOpen();
+                    Map<String, Summary> games = new HashMap<>();
+                    long live = 0;
+                    for (Summary summary : index.values()) {
+                        if (summary.removed) {
+                            continue;
+                        }
+                        Summary copied = moved.get(summary);
+                        if (copied == null) {
+                            copied = copy(summary, output, position);
+                            position += summary.length;
+                        }
+                        games.put(summary.id, copied);
+                        live += copied.length;
+                    }
+                    output.force(true);
+                    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    replaced = true;
+                    channel.close();
+                    channel = output;
+                    fileId = newFileId;
+                    index.clear();
+                    index.putAll(games);
+                    end.set(position);
+                    liveBytes.set(live);
+                    writeIndex(games, fileId, position);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                if (!replaced) {
+                    output.close();
+                    Files.deleteIfExists(tempPath);
+                }
+            }
+        }
+    }
+
+    private Summary copy(Summary summary, FileChannel output, long position) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(summary.length);
+        readFully(channel, record, summary.offset);
+        record.flip();
+        writeFully(output, record, position);
+        return summary.movedTo(position);
+    }
+
+    private void compactLoop() {
+        while (true) {
+            synchronized (this) {
+                while (!compactionRequested && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                compactionRequested = false;
+            }
+            try {
+                compact();
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("Could not compact the save store: "+e);
+            }
+        }
+    }
+
+    // Writes the index so the next open doesn't have to read every record
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            channel.force(true);
+            Map<String, Summary> games = new HashMap<>();
+            for (Summary summary : index.values()) {
+                if (!summary.removed) {
+                    games.put(summary.id, summary);
+                }
+            }
+            writeIndex(games, fileId, end.get());
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("error: the save store is closed");
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, long fileId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC);
+        header.put(FORMAT_VERSION);
+        header.putLong(fileId);
+        header.flip();
+        writeFully(channel, header, 0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of the save store");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
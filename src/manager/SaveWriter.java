@@ -0,0 +1,174 @@
+package manager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ *   Writes saved games on a background thread so that saving never makes the main loop wait for the disk. Only the
+ * latest game matters, so if several saves are requested while one is being written, only the last of them is written
+ * next. Each save goes to a temporary file that is synced and then moved over the old save, so a crash can never leave
+ * a half-written save behind.
+ *
+ *   Anything still waiting to be written when the game exits is written by a shutdown hook.
+ */
+public final class SaveWriter {
+    public interface Callback {
+        // Whether the save is on disk, which it isn't if it failed or a later save (or a deletion) replaced it first
+        void saveFinished(boolean written);
+    }
+
+    private final Path path;
+    private final Path tempPath;
+    private final SaveFormat format = new SaveFormat();
+
+    // The latest save, and the copy of it being written
+    private final SavedGame pending = new SavedGame();
+    private final SavedGame writing = new SavedGame();
+    private Callback pendingCallback;
+    private boolean hasPending = false;
+    private boolean deletePending = false;
+    private boolean busy = false;
+
+    private long requested = 0;
+    private long written = 0;
+
+    public SaveWriter(Path path) {
+        this.path = path;
+        tempPath = path.resolveSibling(path.getFileName()+".tmp");
+        Thread thread = new Thread(this::writeLoop);
+        thread.setName("saveWriter");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+    }
+
+    public void save(SavedGame game) {
+        save(game, null);
+    }
+
+    /*
+     *   Copies the game, so it can be changed again as soon as this returns. The callback is called once it is known
+     * whether the save was written, on the writer thread (or on this one if it replaces a save that hadn't been written
+     * yet), and before flush returns. It is never called with a lock held.
+     */
+    public void save(SavedGame game, Callback callback) {
+        Callback replaced;
+        synchronized (this) {
+            replaced = hasPending ? pendingCallback : null;
+            pending.copyFrom(game);
+            pendingCallback = callback;
+            hasPending = true;
+            deletePending = false;
+            requested++;
+            notifyAll();
+        }
+        finished(replaced, false);
+    }
+
+    public void delete() {
+        Callback replaced;
+        synchronized (this) {
+            replaced = hasPending ? pendingCallback : null;
+            pendingCallback = null;
+            hasPending = false;
+            deletePending = true;
+            notifyAll();
+        }
+        finished(replaced, false);
+    }
+
+    private static void finished(Callback callback, boolean written) {
+        if (callback != null) {
+            callback.saveFinished(written);
+        }
+    }
+
+    // Waits until everything requested so far is on disk
+    public synchronized void flush() {
+        while (hasPending || deletePending || busy) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    public synchronized long getRequested() {
+        return requested;
+    }
+
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean delete;
+            Callback callback;
+            synchronized (this) {
+                while (!hasPending && !deletePending) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                delete = deletePending;
+                if (!delete) {
+                    writing.copyFrom(pending);
+                }
+                callback = delete ? null : pendingCallback;
+                pendingCallback = null;
+                hasPending = false;
+                deletePending = false;
+                busy = true;
+            }
+            boolean success = delete ? deleteSave() : write(format.encode(writing));
+            // Still busy, so that flush waits for the callback too
+            finished(callback, success);
+            synchronized (this) {
+                busy = false;
+                if (success && !delete) {
+                    written++;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private boolean write(ByteBuffer data) {
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            System.err.println("Could not save the game: "+e);
+            return false;
+        }
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not replace the saved game: "+e);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean deleteSave() {
+        try {
+            Files.deleteIfExists(path);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not delete the saved game: "+e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package manager;
+
+import engine.GameState;
+import engine.Hand;
+import engine.Rules;
+
+import java.util.Arrays;
+
+// Everything needed to resume a game, kept as card IDs so that the same object can be filled and saved again and again
+public final class SavedGame {
+    // A growable list of card IDs
+    public static final class Cards {
+        private int[] ids = new int[16];
+        private int size = 0;
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int i) {
+            return ids[i];
+        }
+
+        public void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2*size);
+            }
+            ids[size++] = id;
+        }
+
+        // Removes the first copy of the card, returning false if there isn't one
+        public boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i+1, ids, i, --size - i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public void copyFrom(Cards other) {
+            if (ids.length < other.size) {
+                ids = new int[other.ids.length];
+            }
+            System.arraycopy(other.ids, 0, ids, 0, other.size);
+            size = other.size;
+        }
+
+        boolean contentEquals(Cards other) {
+            return Arrays.equals(ids, 0, size, other.ids, 0, other.size);
+        }
+    }
+
+    public final Cards deck = new Cards();
+    public final Cards discard = new Cards();
+    public final Cards playerHand = new Cards();
+    public final Cards opponentHand = new Cards();
+    public int topOfDeck;
+    public boolean playerTurn;
+    public boolean hasDrawn;
+    public Rules rules = Rules.STANDARD;
+    // Cards stacked on the seat whose turn it is, which it must draw unless it stacks another
+    public int pendingDraws;
+    public long seed;
+    // How many moves were made since the deal, which resumed games derive their random streams from
+    public int moves;
+
+    public void clear() {
+        deck.clear();
+        discard.clear();
+        playerHand.clear();
+        opponentHand.clear();
+    }
+
+    public void copyFrom(SavedGame other) {
+        deck.copyFrom(other.deck);
+        discard.copyFrom(other.discard);
+        playerHand.copyFrom(other.playerHand);
+        opponentHand.copyFrom(other.opponentHand);
+        topOfDeck = other.topOfDeck;
+        playerTurn = other.playerTurn;
+        hasDrawn = other.hasDrawn;
+        rules = other.rules;
+        pendingDraws = other.pendingDraws;
+        seed = other.seed;
+        moves = other.moves;
+    }
+
+    public boolean sameAs(SavedGame other) {
+        return topOfDeck == other.topOfDeck && playerTurn == other.playerTurn && hasDrawn == other.hasDrawn
+            && rules == other.rules && pendingDraws == other.pendingDraws && seed == other.seed && moves == other.moves && deck.contentEquals(other.deck) && discard.contentEquals(other.discard)
+            && playerHand.contentEquals(other.playerHand) && opponentHand.contentEquals(other.opponentHand);
+    }
+
+    // Fills in the position of a two-seat game, leaving the seed and moves alone
+    public void copyFrom(GameState state) {
+        clear();
+        int[] ids = state.getDeck().toIds();
+        for (int id : ids) {
+            deck.add(id);
+        }
+        for (int i = 0; i < state.getDiscardSize(); i++) {
+            discard.add(state.getDiscard(i));
+        }
+        Hand hand = state.getHand(GameState.PLAYER);
+        for (int c = 0; c < hand.size(); c++) {
+            playerHand.add(hand.get(c));
+        }
+        hand = state.getHand(GameState.OPPONENT);
+        for (int c = 0; c < hand.size(); c++) {
+            opponentHand.add(hand.get(c));
+        }
+        topOfDeck = state.getTopOfDeck();
+        playerTurn = state.getTurn() == GameState.PLAYER;
+        hasDrawn = state.hasDrawn();
+        rules = state.getRules();
+        pendingDraws = state.getPendingDraws();
+    }
+
+    // The saved position as a two-seat game, whose random streams carry on from the moves already made
+    public GameState toState() {
+        GameState state = new GameState(2, new GameRandom(seed, moves));
+        for (int i = 0; i < deck.size(); i++) {
+            state.getDeck().add(deck.get(i));
+        }
+        for (int i = 0; i < discard.size(); i++) {
+            state.addDiscard(discard.get(i));
+        }
+        for (int i = 0; i < playerHand.size(); i++) {
+            state.getHand(GameState.PLAYER).add(playerHand.get(i));
+        }
+        for (int i = 0; i < opponentHand.size(); i++) {
+            state.getHand(GameState.OPPONENT).add(opponentHand.get(i));
+        }
+        state.setTopOfDeck(topOfDeck);
+        state.setTurn(playerTurn ? GameState.PLAYER : GameState.OPPONENT, hasDrawn);
+        state.setRules(rules);
+        state.setPendingDraws(pendingDraws);
+        return state;
+    }
+}
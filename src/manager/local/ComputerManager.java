@@ -1,26 +1,156 @@
 package manager.local;
 
 import card.CardObject;
-import card.NormalCard;
+import card.CardSet;
+import card.DrawPile;
 import card.UnoCard;
-import card.WildCard;
+import display.Uno;
 import display.UnoPanel;
+import engine.CardTracker;
+import engine.ComputerPlayer;
+import engine.EndgamePlayer;
+import engine.GameState;
+import engine.GameView;
+import engine.HandView;
+import engine.Move;
+import engine.Rules;
+import engine.SnapshotView;
+import engine.Strategies;
+import engine.Strategy;
 import manager.DeckManager;
 import manager.OpponentManager;
 
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public final class ComputerManager extends OpponentManager {
-    private int winningBy = 0;
-    private int bestColor;
+    // Once both hands are this small, the endgame solver takes over from the chosen strategy (0 leaves it off)
+    private static final int ENDGAME_CARDS = Integer.getInteger("uno.endgame.cards", 0);
+
+    // Strategies think on another thread so the game keeps animating, but the fallback decides if they take too long
+    private static final long THINKING_TIMEOUT = Long.getLong("uno.ai.timeout", 2000);
+    // How long the player is given to jump in before the computer takes its turn
+    private static final long JUMP_IN_MILLIS = 1500;
+    private static final ExecutorService THINKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "computerThinking");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Strategy strategy = Strategies.create(System.getProperty("uno.strategy", Strategies.DEFAULT));
+    private final Strategy endgame = ENDGAME_CARDS > 0 ? Strategies.create(EndgamePlayer.NAME) : null;
+    private final Strategy fallback = new ComputerPlayer();
+    private final GameView view = new ComputerView();
+    private final CardTracker tracker = new CardTracker();
+
+    private int opponentHandSize;
+
+    private CompletableFuture<Integer> thinking = CompletableFuture.completedFuture(Move.DRAW);
+    // Increased whenever a decision that is still being made should be ignored
+    private int decision = 0;
+    // What made this turn's first decision, which also makes the one after drawing, and the game when it was made
+    private Strategy turnStrategy = null;
+    private SnapshotView turnStart = null;
+
+    private class ComputerView implements GameView {
+        @Override
+        public int seat() {
+            return GameState.OPPONENT;
+        }
+
+        @Override
+        public int seats() {
+            return UnoPanel.getSeats();
+        }
+
+        @Override
+        public int nextSeat() {
+            return UnoPanel.seatAfter(GameState.OPPONENT);
+        }
+
+        @Override
+        public int direction() {
+            return UnoPanel.getDirection();
+        }
+
+        @Override
+        public HandView hand() {
+            return ComputerManager.this;
+        }
+
+        @Override
+        public int handSize(int seat) {
+            return seat == GameState.OPPONENT ? count() : opponentHandSize;
+        }
+
+        @Override
+        public void unseenCards(DrawPile unseen) {
+            deckManager.copyDeckInto(unseen);
+            CardSet playerCards = UnoPanel.getPlayerCards();
+            for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+                for (int n = playerCards.count(id); n > 0; n--) {
+                    unseen.add(id);
+                }
+            }
+        }
+
+        @Override
+        public int topOfDeck() {
+            return UnoPanel.getTopOfDeck().getId();
+        }
+
+        @Override
+        public int deckSize() {
+            return UnoPanel.getDeckSize();
+        }
+
+        @Override
+        public boolean hasDrawn() {
+            return !UnoPanel.canDraw();
+        }
+
+        @Override
+        public Rules rules() {
+            return UnoPanel.getRules();
+        }
+
+        @Override
+        public int pendingDraws() {
+            return UnoPanel.getPendingDraws();
+        }
+
+        @Override
+        public boolean isPeeking() {
+            return UnoPanel.isPeeking();
+        }
+
+        @Override
+        public SplittableRandom random() {
+            return deckManager.getRandom().decisions();
+        }
+
+        @Override
+        public CardTracker tracker() {
+            return tracker;
+        }
+    }
 
     public ComputerManager() {
-        deckManager = new DeckManager("computer");
+        deckManager = new DeckManager("computer", DeckManager.configuredRules());
     }
 
     @Override
     public void reset() {
         super.reset();
+        decision++;
+        turnStrategy = null;
+        turnStart = null;
         deckManager.startGame();
     }
 
@@ -29,146 +159,194 @@ public final class ComputerManager extends OpponentManager {
         return true;
     }
 
+    // The computer sees its own cards as they are added to its hand, but only knows that the player got one
     @Override
-    public UnoCard drawVisibleCard() {
-        return deckManager.draw();
+    public void cardDrawn(UnoCard card, boolean toPlayer) {
+        super.cardDrawn(card, toPlayer);
+        if (toPlayer) {
+            tracker.opponentDrew();
+        }
     }
 
-    /*
-     *   The computer will chose the first possible option in the following list, with a few special cases to make it
-     * a bit less predictable or to help the player if they have been losing frequently. Also, the computer attempts
-     * to save wild cards until the end instead of wasting them early on: this is the core of its strategy.
-     *
-     * Play a wild card if the player is about to win       (except for sometimes when on a winning streak)
-     * Play a numeric card with the same color              (except for sometimes when on a winning streak)
-     * Play any card with the same color                    (except for sometimes when on a winning streak)
-     * Play a matching card with the best possible color    (or a random color sometimes if on a winning streak)
-     * Play a wild card                                     (or maybe not--more likely when on a winning streak--but
-     * Draw a card and play it if possible                     usually tries to save cards until the end of the game)
-     */
     @Override
-    public void onTurnStart(int opponentHandSize) {
-        UnoPanel.delay(500);
-        UnoCard topOfDeck = UnoPanel.getTopOfDeck();
-        if (UnoPanel.isPeeking()) {
-            if (winningBy > 0) {
-                winningBy = 0;
-            } else if (winningBy > -5) {
-                winningBy--;
-            }
+    public void cardDealt(UnoCard card, boolean toPlayer) {
+        super.cardDealt(card, toPlayer);
+        if (toPlayer) {
+            tracker.opponentDrew();
         }
-        int playable = -1;
-        int nonWild = -1;
-        int matchColor = -1;
-        int[] colorCounts = new int[4];
-        for (CardObject cardObject : hand) {
-            UnoCard card = cardObject.getCard();
-            if (card instanceof NormalCard) {
-                colorCounts[card.getColorCode()] += 1;
-            }
-        }
-        int colorOffset = UnoPanel.RANDOM.nextInt(4);
-        int targetColor = topOfDeck.getColorCode();
-        int alternateColor = -1;
-        int maxColor = 0;
-        bestColor = colorOffset;
-        for (int i = colorOffset; i < 4+colorOffset; i++) {
-            int index = i%4;
-            int c = colorCounts[index];
-            if (index != targetColor) {
-                if (c >= maxColor) {
-                    maxColor = c;
-                    bestColor = index;
-                } else if (c != 0) {
-                    alternateColor = index;
+    }
+
+    @Override
+    public void playerDrawCard() {
+        tracker.opponentHadNone(UnoPanel.getLegalCards());
+    }
+
+    // The player may also have jumped in during the computer's turn, so anything it was deciding no longer applies
+    @Override
+    public void playerPlayCard(int c, UnoCard card) {
+        decision++;
+        tracker.opponentPlayed(card.getId());
+    }
+
+    @Override
+    public void handsSwapped(CardSet playerHand, CardSet hand) {
+        tracker.handsSwapped(hand, playerHand);
+    }
+
+    // Jumping in is always worth it, but the computer takes a moment to notice
+    @Override
+    public void jumpInPossible() {
+        UnoPanel.delay(300);
+        UnoPanel.pushEvent("computerJumpIn", () -> {
+            long jumpIns = UnoPanel.getJumpIns(GameState.OPPONENT);
+            for (int c = 0; c < count(); c++) {
+                if (CardSet.contains(jumpIns, cardAt(c))) {
+                    UnoPanel.jumpIn(GameState.OPPONENT, c);
+                    return;
                 }
             }
+        });
+    }
+
+    @Override
+    public void deckRefilled(int[] ids, int length) {
+        for (int i = 0; i < length; i++) {
+            tracker.unsee(ids[i]);
         }
-        if (alternateColor == -1) {
-            alternateColor = bestColor;
-        }
-        int nonWildCount = 0;
-        for (int c = hand.size()-1; c >= 0; c--) {
-            UnoCard card = hand.get(c).getCard();
-            if (card.canPlayOn(topOfDeck)) {
-                playable = c;
-                if (card instanceof NormalCard) {
-                    if (opponentHandSize <= 2 && card.cardDraws() != 0) {
-                        matchColor = c;
-                        break;
-                    }
-                    int color = card.getColorCode();
-                    int count = colorCounts[color];
-                    if (count > nonWildCount) {
-                        nonWild = c;
-                        nonWildCount = count;
+    }
+
+    @Override
+    public void newGame(UnoCard topOfDeck, UnoCard[] hand) {
+        tracker.reset(topOfDeck.getId(), DeckManager.CARDS_PER_HAND, DeckManager.decksFor(UnoPanel.getSeats()));
+    }
+
+    private Strategy currentStrategy() {
+        return endgame != null && count() <= ENDGAME_CARDS && opponentHandSize <= ENDGAME_CARDS ? endgame : strategy;
+    }
+
+    // Decides on another thread from a snapshot of the game, then runs onDecision on the main loop
+    private void think(IntConsumer onDecision) {
+        int id = ++decision;
+        boolean hasDrawn = view.hasDrawn();
+        SnapshotView snapshot = new SnapshotView(view);
+        SnapshotView fallbackSnapshot = new SnapshotView(view);
+        // A strategy may have chosen the color for a drawn wild card when it decided to draw, so it finishes the turn
+        Strategy current = hasDrawn && turnStrategy != null ? turnStrategy : currentStrategy();
+        CompletableFuture<Integer> result;
+        if (current == fallback) {
+            result = CompletableFuture.failedFuture(new IllegalStateException("error: the fallback started this turn"));
+        } else if (thinking.isDone()) {
+            thinking = CompletableFuture.supplyAsync(() -> current.decide(snapshot), THINKER);
+            result = thinking.copy().orTimeout(THINKING_TIMEOUT, TimeUnit.MILLISECONDS);
+        } else {
+            // The last decision is still being made, so the strategy can't be used yet
+            result = CompletableFuture.failedFuture(new IllegalStateException("error: still thinking"));
+        }
+        result.handle((move, e) -> {
+            synchronized (Uno.PANEL) {
+                UnoPanel.pushEvent("computerDecision", () -> {
+                    if (id != decision || !isTurn) {
+                        return;
                     }
-                    if (color == targetColor) {
-                        matchColor = c;
-                        if (card.isNumeric() && opponentHandSize > 2) {
-                            break;
+                    if (e == null) {
+                        if (!hasDrawn) {
+                            turnStrategy = current;
+                            turnStart = fallbackSnapshot;
                         }
+                        onDecision.accept(move);
+                        return;
                     }
-                } else if (opponentHandSize == 1 || opponentHandSize == 2 && UnoPanel.RANDOM.nextBoolean()){
-                    ((WildCard) card).setColor(bestColor);
-                    matchColor = c;
-                    break;
-                }
+                    // The fallback only decides here on the main loop, so it is never used by two threads at once
+                    if (!hasDrawn) {
+                        turnStrategy = fallback;
+                    } else if (turnStrategy != fallback && turnStart != null) {
+                        // It has to decide how it would have started the turn before it knows what to do after drawing
+                        fallback.decide(turnStart);
+                    }
+                    onDecision.accept(fallback.decide(fallbackSnapshot));
+                });
+            }
+            return null;
+        });
+    }
+
+    // Strategies are only used on the thinking thread, so this runs after any decision that is still being made
+    private void onThinker(Consumer<Strategy> action) {
+        THINKER.execute(() -> {
+            action.accept(strategy);
+            if (endgame != null) {
+                action.accept(endgame);
             }
+        });
+    }
+
+    @Override
+    public void onTurnStart(int opponentHandSize) {
+        this.opponentHandSize = opponentHandSize;
+        if (UnoPanel.getJumpIns(GameState.PLAYER) == 0) {
+            UnoPanel.delay(500);
+            takeTurn();
+            return;
         }
-        // When winning too much, ease off to make the player feel better at the game
-        if (winningBy > 1 && hand.size() <= 10 && UnoPanel.RANDOM.nextInt(2*Math.max(1, 6 - winningBy)) == 0) {
-            if (matchColor == -1 && nonWild != -1) {
-                // Switch colors before using all of that color if possible
-                UnoPanel.playCard(nonWild);
-                return;
+        // A delay in the event queue would stop the player from clicking, so the computer waits on another thread
+        int id = decision;
+        CompletableFuture.delayedExecutor(JUMP_IN_MILLIS, TimeUnit.MILLISECONDS).execute(() -> {
+            synchronized (Uno.PANEL) {
+                UnoPanel.pushEvent("computerTurn", () -> {
+                    if (id == decision && isTurn) {
+                        takeTurn();
+                    }
+                });
             }
-            // Act as though the opponent isn't as close to winning
-            opponentHandSize += 2;
-            if (hand.size() <= 7 && opponentHandSize > 4) {
-                // Otherwise, pick a suboptimal color for wild cards if it's not too risky
-                bestColor = alternateColor;
+        });
+    }
+
+    private void takeTurn() {
+        think(move -> {
+            if (Move.isPlay(move)) {
+                UnoPanel.playCard(Move.index(move), Move.color(move));
+            } else {
+                UnoPanel.drawCard();
             }
-        }
-        if (matchColor != -1) {
-            UnoPanel.playCard(matchColor);
-        } else if (nonWild != -1) {
-            UnoPanel.playCard(nonWild);
-        } else if (playable != -1 && (hand.size() <= 3 || hand.size() > 10
-                || opponentHandSize <= 3 || opponentHandSize > 10
-                || UnoPanel.RANDOM.nextInt(Math.max(2, 5 - winningBy)) == 0)) {
-            WildCard wild = (WildCard) hand.get(playable).getCard();
-            wild.setColor(bestColor);
-            UnoPanel.playCard(playable);
-        } else {
-            UnoPanel.drawCard();
-        }
+        });
     }
 
     @Override
     protected void onAddCard(CardObject cardObject, int c) {
-        if (isTurn) {
-            UnoCard card = cardObject.getCard();
-            if (card.canPlayOn(UnoPanel.getTopOfDeck())) {
-                if (card instanceof WildCard) {
-                    ((WildCard) card).setColor(bestColor);
+        tracker.see(cardObject.getCard().getId());
+        // Drawing the cards stacked on the computer ends its turn, so there is nothing to decide
+        if (isTurn && !UnoPanel.canDraw()) {
+            think(move -> {
+                if (Move.isPlay(move)) {
+                    UnoPanel.delay(100);
+                    UnoPanel.playCard(Move.index(move), Move.color(move));
+                } else {
+                    UnoPanel.finishTurnEarly();
                 }
-                UnoPanel.delay(100);
-                UnoPanel.playCard(c);
-            } else {
-                UnoPanel.finishTurnEarly();
-            }
+            });
         }
     }
 
     @Override
     public void restore(UnoCard topOfDeck, UnoCard[] hand, int playerSize, List<UnoCard> discard, boolean playerWillStart, boolean hasDrawn) {
-        // When restoring, guess how much of an advantage the computer had last time
-        winningBy = Math.max(-1, Math.min((playerSize - hand.length + 1) / 5, 3));
+        decision++;
+        turnStrategy = null;
+        turnStart = null;
+        tracker.reset(topOfDeck.getId(), playerSize, DeckManager.decksFor(UnoPanel.getSeats()));
+        for (UnoCard card : discard) {
+            tracker.see(card.getId());
+        }
+        fallback.restore(hand.length, playerSize);
+        onThinker(s -> s.restore(hand.length, playerSize));
     }
 
     @Override
     public void reveal(List<CardObject> cardObjects) {
+        int[] ids = new int[cardObjects.size()];
+        for (int c = 0; c < ids.length; c++) {
+            ids[c] = cardObjects.get(c).getCard().getId();
+        }
+        tracker.reveal(ids, ids.length);
         sortHandAndAnimateForReveal();
     }
 
@@ -184,11 +362,10 @@ public final class ComputerManager extends OpponentManager {
 
     @Override
     public void gameOver() {
-        if (isTurn) {
-            winningBy++;
-        } else {
-            winningBy--;
-        }
-        deckManager.deleteSave();
+        decision++;
+        boolean won = isTurn;
+        fallback.gameOver(won);
+        onThinker(s -> s.gameOver(won));
+        deckManager.endGame();
     }
 }
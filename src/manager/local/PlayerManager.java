@@ -2,34 +2,150 @@ package manager.local;
 
 import card.CardGraphics;
 import card.CardObject;
+import card.CardSet;
+import card.DrawPile;
 import card.UnoCard;
 import card.WildCard;
+import display.Uno;
 import display.UnoPanel;
+import engine.CardTracker;
+import engine.GameState;
+import engine.GameView;
+import engine.HandView;
+import engine.HintSearch;
+import engine.Move;
+import engine.Rules;
+import engine.SnapshotView;
 import manager.HandManager;
 import menu.ColorSelectMenu;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public final class PlayerManager extends HandManager {
+    // Hints are searched for on another thread for at most this long, and are dropped as soon as the player acts
+    private static final long HINT_MILLIS = Long.getLong("uno.hint.millis", 1000);
+    private static final ExecutorService HINTER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hintThinking");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private int columns;
     private int rows;
     private ArrayList<Integer> sortedIndices = new ArrayList<>();
 
+    private final HintSearch hintSearch = new HintSearch(HINT_MILLIS);
+    // Increased whenever a hint that is still being searched for should be ignored
+    private volatile int hint = 0;
+    private String hintText = null;
+    private CardObject hintedCard = null;
+
+    private class PlayerView implements GameView {
+        private final DrawPile unseen;
+
+        PlayerView(DrawPile unseen) {
+            this.unseen = unseen;
+        }
+
+        @Override
+        public int seat() {
+            return GameState.PLAYER;
+        }
+
+        @Override
+        public int seats() {
+            return UnoPanel.getSeats();
+        }
+
+        @Override
+        public int nextSeat() {
+            return UnoPanel.seatAfter(GameState.PLAYER);
+        }
+
+        @Override
+        public int direction() {
+            return UnoPanel.getDirection();
+        }
+
+        @Override
+        public HandView hand() {
+            return PlayerManager.this;
+        }
+
+        @Override
+        public int handSize(int seat) {
+            return seat == GameState.PLAYER ? count() : UnoPanel.getOpponentHandSize();
+        }
+
+        @Override
+        public void unseenCards(DrawPile unseen) {
+            unseen.copyFrom(this.unseen);
+        }
+
+        @Override
+        public int topOfDeck() {
+            return UnoPanel.getTopOfDeck().getId();
+        }
+
+        @Override
+        public int deckSize() {
+            return unseen.size() - UnoPanel.getOpponentHandSize();
+        }
+
+        @Override
+        public boolean hasDrawn() {
+            return !UnoPanel.canDraw();
+        }
+
+        @Override
+        public Rules rules() {
+            return UnoPanel.getRules();
+        }
+
+        @Override
+        public int pendingDraws() {
+            return UnoPanel.getPendingDraws();
+        }
+
+        @Override
+        public boolean isPeeking() {
+            return UnoPanel.isPeeking();
+        }
+
+        @Override
+        public SplittableRandom random() {
+            return new SplittableRandom();
+        }
+
+        @Override
+        public CardTracker tracker() {
+            return null;
+        }
+    }
+
     private void updateCR() {
         columns = Math.max((UnoPanel.width - 2*MARGIN)/SEP_X, 3);
         rows = (hand.size()-1)/columns;
     }
 
+    // Out of turn, only cards the player could jump in with can be clicked
     public boolean click(int x, int y, Point drawPileLocation) {
+        long playable = playable();
         for (int cc = sortedIndices.size() - 1; cc >= 0; cc--) {
             int c = sortedIndices.get(cc);
             CardObject cardObject = hand.get(c);
             if (cardObject.inBounds(x, y)) {
                 UnoCard card = cardObject.getCard();
-                if (card.canPlayOn(UnoPanel.getTopOfDeck())) {
-                    if (card instanceof WildCard) {
-                        UnoPanel.setMenu(new ColorSelectMenu((WildCard) card, c));
+                if (CardSet.contains(playable, card.getId())) {
+                    if (!isTurn) {
+                        UnoPanel.jumpIn(GameState.PLAYER, c);
+                    } else if (card instanceof WildCard) {
+                        UnoPanel.setMenu(new ColorSelectMenu(c));
                     } else {
                         UnoPanel.playCard(c);
                     }
@@ -37,17 +153,20 @@ public final class PlayerManager extends HandManager {
                 return true;
             }
         }
-        if (UnoPanel.canDraw() && CardObject.pointInBounds(drawPileLocation, x, y)) {
+        if (isTurn && UnoPanel.canDraw() && CardObject.pointInBounds(drawPileLocation, x, y)) {
             UnoPanel.drawCard();
             return true;
         }
         return false;
     }
 
+    private long playable() {
+        return handSet.mask() & (isTurn ? UnoPanel.getLegalCards() : UnoPanel.getJumpIns(GameState.PLAYER));
+    }
+
     public boolean shouldPlayDrawnCard() {
         CardObject cardObject = hand.get(hand.size()-1);
-        UnoCard card = cardObject.getCard();
-        if (card.canPlayOn(UnoPanel.getTopOfDeck())) {
+        if (CardSet.canPlayOn(cardObject.getCard(), UnoPanel.getTopOfDeck())) {
             cardObject.setHighlighted(true);
             return true;
         } else {
@@ -55,6 +174,59 @@ public final class PlayerManager extends HandManager {
         }
     }
 
+    // Starts searching for the best move in the background, then highlights it if the player hasn't acted yet
+    public void requestHint() {
+        if (!isTurn || hintText != null) {
+            return;
+        }
+        DrawPile unseen = new DrawPile();
+        if (!UnoPanel.getUnseenCards(unseen)) {
+            hintText = "No Hints Available";
+            return;
+        }
+        int id = ++hint;
+        SnapshotView snapshot = new SnapshotView(new PlayerView(unseen));
+        hintText = "Thinking...";
+        CompletableFuture.supplyAsync(() -> hintSearch.search(snapshot, () -> id != hint), HINTER)
+            .thenAccept(move -> {
+                synchronized (Uno.PANEL) {
+                    UnoPanel.pushEvent("hint", () -> {
+                        if (id == hint && isTurn) {
+                            showHint(move);
+                        }
+                    });
+                }
+            });
+    }
+
+    private void showHint(int move) {
+        if (Move.isPlay(move)) {
+            hintedCard = hand.get(Move.index(move));
+            hintedCard.setHighlighted(true);
+            int color = Move.color(move);
+            hintText = color == UnoCard.NO_COLOR ? "Hint: Play This Card" : "Hint: Play This as "+UnoCard.getColorText(color);
+        } else if (move == Move.FINISH) {
+            hintText = "Hint: End Your Turn";
+        } else {
+            hintText = "Hint: Draw a Card";
+        }
+    }
+
+    // Called when the player acts, since the hint is for a position that no longer exists
+    public void cancelHint() {
+        hint++;
+        hintText = null;
+        if (hintedCard != null) {
+            hintedCard.setHighlighted(false);
+            hintedCard = null;
+        }
+    }
+
+    @Override
+    protected void onTurnStart(int opponentHandSize) {
+        cancelHint();
+    }
+
     @Override
     public void update(long time) {
         updateCR();
@@ -85,13 +257,17 @@ public final class PlayerManager extends HandManager {
             showText(g, "Waiting for Opponent");
         } else if (seconds != -1) {
             showText(g, "New Game in " + seconds);
+        } else if (isTurn && hintText != null) {
+            showText(g, hintText);
         } else if (isTurn) {
-            showText(g, "Your Turn");
+            int pendingDraws = UnoPanel.getPendingDraws();
+            showText(g, pendingDraws == 0 ? "Your Turn" : "Stack or Draw "+pendingDraws);
         }
 
+        long playable = UnoPanel.hasEventInQueue() ? 0 : playable();
         for (int c : sortedIndices) {
             CardObject cardObject = hand.get(c);
-            cardObject.paint(g, UnoPanel.hasEventInQueue() || !isTurn || !cardObject.getCard().canPlayOn(UnoPanel.getTopOfDeck()));
+            cardObject.paint(g, !CardSet.contains(playable, cardObject.getCard().getId()));
         }
 
         return UnoPanel.height - SEP_Y*rows - CardGraphics.HEIGHT - MARGIN;
@@ -106,6 +282,7 @@ public final class PlayerManager extends HandManager {
 
     @Override
     public void reset() {
+        cancelHint();
         super.reset();
         sortedIndices.clear();
     }
@@ -123,6 +300,15 @@ public final class PlayerManager extends HandManager {
         sortedIndices.add(c);
     }
 
+    @Override
+    protected void onHandReplaced() {
+        cancelHint();
+        sortedIndices.clear();
+        for (int c = 0; c < hand.size(); c++) {
+            onAddCard(hand.get(c), c);
+        }
+    }
+
     @Override
     protected void onRemoveCard(CardObject cardObject, int c) {
         int cc = 0;
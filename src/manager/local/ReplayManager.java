@@ -0,0 +1,169 @@
+package manager.local;
+
+import display.UnoPanel;
+import engine.GameState;
+import manager.DeckManager;
+import manager.GameRecord;
+import manager.OpponentManager;
+import manager.ReplayIndex;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+
+/*
+ *   Plays back the last finished game in place of an opponent. Both hands are shown face up and nobody takes a turn,
+ * and the keys control playback instead:
+ *
+ *   space   play or pause (from the start again once it has ended)
+ *   , .     back or forward one move
+ *   [ ]     back or forward one turn
+ *   - +     slower or faster
+ *   0       back to the start
+ */
+public final class ReplayManager extends OpponentManager {
+    private static final long MOVE_MILLIS = Long.getLong("uno.replay.millis", 800);
+    // Playback runs at 2^speed times normal speed
+    private static final int MIN_SPEED = -2;
+    private static final int MAX_SPEED = 4;
+
+    private final ReplayIndex index;
+    private GameState shown;
+
+    private int move = 0;
+    private boolean playing = true;
+    private int speed = 0;
+    private long untilNextMove;
+
+    public ReplayManager(GameRecord record) {
+        index = new ReplayIndex(record);
+    }
+
+    // Reads the most recently finished game, or returns null if there isn't one
+    public static GameRecord latestRecord() {
+        File latest = null;
+        for (String gameType : new String[] {"computer", "server"}) {
+            File file = DeckManager.replayFile(gameType);
+            if (file.exists() && (latest == null || file.lastModified() > latest.lastModified())) {
+                latest = file;
+            }
+        }
+        if (latest == null) {
+            return null;
+        }
+        try {
+            return GameRecord.read(latest.toPath());
+        } catch (IOException e) {
+            System.err.println("Could not read the replay: "+e);
+            return null;
+        }
+    }
+
+    private void seek(int move) {
+        this.move = Math.max(0, Math.min(move, index.moves()));
+        shown = index.seek(this.move);
+        UnoPanel.showState(shown);
+        untilNextMove = millisPerMove();
+    }
+
+    private long millisPerMove() {
+        return speed >= 0 ? MOVE_MILLIS >> speed : MOVE_MILLIS << -speed;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        playing = true;
+        seek(0);
+    }
+
+    @Override
+    public void update(long time) {
+        if (playing) {
+            if (move == index.moves()) {
+                playing = false;
+            } else {
+                untilNextMove -= time;
+                if (untilNextMove <= 0) {
+                    seek(move+1);
+                }
+            }
+        }
+        super.update(time);
+    }
+
+    @Override
+    public int paint(Graphics2D g) {
+        int y = super.paint(g);
+        int turn = index.turnAt(move);
+        String status = "Move "+move+" of "+index.moves()+" - "+(turn == 0 ? "Deal" : "Turn "+turn+" of "
+            +(index.turns()-1)+(shown.getTurn() == GameState.PLAYER ? " (Yours)" : " (Opponent's)"));
+        String playback = playing ? "Playing at "+speedText() : move == index.moves() ? "Ended" : "Paused";
+        g.setColor(UnoPanel.getTopOfDeck().getColor());
+        g.setFont(new Font("SansSerif", Font.BOLD, 18));
+        UnoPanel.shadowTextCenter(g, status+" - "+playback, UnoPanel.width/2, y + 25);
+        g.setFont(new Font("SansSerif", Font.BOLD, 12));
+        UnoPanel.shadowTextCenter(g, "Space: Play/Pause   , .: Move   [ ]: Turn   - +: Speed   0: Start",
+            UnoPanel.width/2, y + 50);
+        return y;
+    }
+
+    private String speedText() {
+        return speed >= 0 ? (1 << speed)+"x" : "1/"+(1 << -speed)+"x";
+    }
+
+    @Override
+    public boolean keyTyped(char c) {
+        switch (c) {
+        case ' ':
+            if (!playing && move == index.moves()) {
+                seek(0);
+            }
+            playing = !playing;
+            untilNextMove = millisPerMove();
+            break;
+        case ',':
+            seek(move-1);
+            break;
+        case '.':
+            seek(move+1);
+            break;
+        case '[': {
+            // Back to the start of this turn, or of the one before if this one just started
+            int turn = index.turnAt(move);
+            seek(index.turnStart(index.turnStart(turn) == move ? Math.max(turn-1, 0) : turn));
+            break;
+        }
+        case ']': {
+            int turn = index.turnAt(move);
+            seek(turn+1 < index.turns() ? index.turnStart(turn+1) : index.moves());
+            break;
+        }
+        case '-':
+            speed = Math.max(speed-1, MIN_SPEED);
+            untilNextMove = Math.min(untilNextMove, millisPerMove());
+            break;
+        case '+':
+        case '=':
+            speed = Math.min(speed+1, MAX_SPEED);
+            untilNextMove = Math.min(untilNextMove, millisPerMove());
+            break;
+        case '0':
+            seek(0);
+            break;
+        default:
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean revealsHand() {
+        return true;
+    }
+
+    @Override
+    public boolean playerCanStart() {
+        return shown.getTurn() == GameState.PLAYER;
+    }
+}
@@ -1,19 +1,26 @@
 package manager.web;
 
+import card.DrawPile;
 import card.UnoCard;
 import display.UnoPanel;
+import engine.CardSource;
+import engine.GameState;
+import engine.Hand;
 import manager.DeckManager;
+import manager.GameRandom;
 
 import java.io.IOException;
 import java.net.Socket;
-import java.util.ArrayList;
 
+/*
+ *   The client can't see the server's hand or the draw pile, so its game starts with every card it hasn't seen in the
+ * draw pile, and the server's cards are stand-ins drawn from there until they are played. Its own cards are sent by the
+ * server as it draws them, and a card that was standing in for one of the server's is replaced there by another.
+ */
 public final class ClientManager extends WebManager {
     private String host;
     private int port;
 
-    private int cardCount;
-
     public ClientManager(String host, int port) {
         this.host = host;
         this.port = port;
@@ -47,61 +54,90 @@ public final class ClientManager extends WebManager {
         super.reset();
         String[] resetParams = waitFor("start").split(Character.toString(MESSAGE_SEPARATOR));
         String[] cardStrings = resetParams[1].split(" ");
+        GameState state = new GameState(2, GameRandom.newGame());
+        DrawPile deck = state.getDeck();
+        deck.addNewDeck();
         UnoCard topOfDeck = UnoCard.decode(cardStrings[0]);
-        UnoCard[] playerHand = new UnoCard[cardStrings.length-1];
+        see(deck, topOfDeck);
+        state.setTopOfDeck(topOfDeck.getId());
         for (int i = 1; i < cardStrings.length; i++) {
-            playerHand[i-1] = UnoCard.decode(cardStrings[i]);
+            UnoCard card = UnoCard.decode(cardStrings[i]);
+            see(deck, card);
+            state.getHand(GameState.PLAYER).add(card.getId());
         }
         switch (resetParams[0]) {
         case "new":
-            cardCount = DeckManager.INITIAL_DECK_COUNT;
-            UnoPanel.newGame(topOfDeck, playerHand, new UnoCard[DeckManager.CARDS_PER_HAND]);
+            addStandIns(state, DeckManager.CARDS_PER_HAND);
+            UnoPanel.newGame(state);
             break;
         case "restore":
             String[] discardStrings = resetParams[2].split(" ");
-            int discardSize = discardStrings.length-1;
             int opponentSize = Integer.parseInt(discardStrings[0]);
-            ArrayList<UnoCard> discard = new ArrayList<>(discardSize);
             for (int i = 1; i < discardStrings.length; i++) {
-                discard.add(UnoCard.decode(discardStrings[i]));
+                UnoCard card = UnoCard.decode(discardStrings[i]);
+                see(deck, card);
+                state.addDiscard(card.getId());
             }
+            addStandIns(state, opponentSize);
             boolean playerTurn = resetParams[3].equals("1");
-            boolean canDraw = resetParams[4].equals("1");
-            cardCount = DeckManager.CARDS_PER_DECK - discardSize - playerHand.length - opponentSize - 1;
-            UnoPanel.restore(topOfDeck, discard, playerHand, new UnoCard[opponentSize], playerTurn, canDraw);
+            boolean hasDrawn = resetParams[4].equals("1");
+            state.setTurn(playerTurn ? GameState.PLAYER : GameState.OPPONENT, hasDrawn);
+            UnoPanel.restore(state);
             break;
         }
     }
 
+    // Takes a card that can be seen out of the draw pile, which had another deck shuffled into it if the card isn't there
+    private static void see(DrawPile deck, UnoCard card) {
+        int id = card.withColor(UnoCard.NO_COLOR).getId();
+        if (deck.count(id) == 0) {
+            deck.addNewDeck();
+        }
+        deck.remove(id);
+    }
+
+    private static void addStandIns(GameState state, int count) {
+        for (int i = 0; i < count; i++) {
+            if (state.getDeck().isEmpty()) {
+                state.getDeck().addNewDeck();
+            }
+            state.getHand(GameState.OPPONENT).add(state.getDeck().draw(state.getRandom().deal()).getId());
+        }
+    }
+
     @Override
     public boolean playerCanStart() {
         return waitFor("clientCanStart").equals("1");
     }
 
     @Override
-    public int cardsInDeck() {
-        return cardCount;
-    }
-
-    private void willDraw() {
-        if (cardCount == 0) {
-            cardCount = UnoPanel.takeDiscardPile().size();
-            if (cardCount == 0) {
-                cardCount = DeckManager.CARDS_PER_DECK;
-            }
-        }
-        cardCount--;
+    public boolean knowsHand() {
+        return false;
     }
 
     @Override
-    public UnoCard drawVisibleCard() {
-        willDraw();
-        return UnoCard.decode(waitFor("card"));
+    public CardSource cardSource() {
+        return this::draw;
     }
 
-    @Override
-    public UnoCard drawHiddenCard() {
-        willDraw();
-        return null;
+    private int draw(GameState state, int seat) {
+        DrawPile deck = state.getDeck();
+        if (seat == GameState.OPPONENT) {
+            return deck.draw(state.getRandom().deal()).getId();
+        }
+        UnoCard card = UnoCard.decode(waitFor("card"));
+        int id = card.getId();
+        if (deck.count(id) != 0) {
+            deck.remove(id);
+            return id;
+        }
+        Hand standIns = state.getHand(GameState.OPPONENT);
+        int c = standIns.lastIndexOf(id);
+        if (c < 0) {
+            invalid("Opponent dealt "+card+", which was already seen.");
+            return deck.draw(state.getRandom().deal()).getId();
+        }
+        standIns.replace(c, deck.draw(state.getRandom().deal()).getId());
+        return id;
     }
 }
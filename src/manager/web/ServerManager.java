@@ -44,21 +44,19 @@ public final class ServerManager extends WebManager {
 
     @Override
     public boolean playerCanStart() {
-        boolean start = UnoPanel.RANDOM.nextBoolean();
+        // Flipping with the deal stream would change which cards are drawn after the deal
+        boolean start = deckManager.getRandom().decisions().nextBoolean();
         write("clientCanStart", start ? "0" : "1");
         return start;
     }
 
+    // The client only learns its own cards when it draws them
     @Override
-    public UnoCard drawVisibleCard() {
-        return deckManager.draw();
-    }
-
-    @Override
-    public UnoCard drawHiddenCard() {
-        UnoCard card = deckManager.draw();
-        write("card", card.encode());
-        return card;
+    public void cardDrawn(UnoCard card, boolean toPlayer) {
+        super.cardDrawn(card, toPlayer);
+        if (!toPlayer) {
+            write("card", card.encode());
+        }
     }
 
     private void encodeTopHand(StringBuilder message, UnoCard topOfDeck, UnoCard[] hand) {
@@ -111,6 +109,6 @@ public final class ServerManager extends WebManager {
 
     @Override
     public void gameOver() {
-        deckManager.deleteSave();
+        deckManager.endGame();
     }
 }
@@ -4,6 +4,7 @@ import card.CardObject;
 import card.UnoCard;
 import display.Uno;
 import display.UnoPanel;
+import engine.Rules;
 import manager.DeckManager;
 import manager.OpponentManager;
 
@@ -109,7 +110,8 @@ public abstract class WebManager extends OpponentManager {
     final void initialize() {
         enableDynamicFor("reset");
         connect();
-        write("version", Integer.toString(Uno.VERSION));
+        // Online games are always played by the standard rules, so the house rules are sent to be turned down if set
+        write("version", Uno.VERSION+" "+DeckManager.configuredRules());
         write(OPTIONAL+"setName", UnoPanel.getChat().getName());
         Thread webLoop = new Thread(() -> {
             String next;
@@ -225,11 +227,16 @@ public abstract class WebManager extends OpponentManager {
                         }
                         CardObject cardObject = hand.get(c);
                         UnoCard oldCard = cardObject.getCard();
-                        if (oldCard == null || oldCard.canBecome(newCard)) {
-                            cardObject.setCard(newCard);
-                            UnoPanel.playCard(c);
-                        } else {
+                        if (oldCard == null) {
+                            UnoPanel.revealOpponentCard(c, newCard);
+                        } else if (!oldCard.canBecome(newCard)) {
                             invalid("Opponent tried to play " + oldCard + " as " + newCard + ".");
+                            return;
+                        }
+                        if (UnoPanel.canPlay(c)) {
+                            UnoPanel.playCard(c, newCard.getColorCode());
+                        } else {
+                            invalid("Opponent tried to play " + newCard + " on " + UnoPanel.getTopOfDeck() + ".");
                         }
                     } catch (Exception e) {
                         e.printStackTrace();
@@ -260,7 +267,7 @@ public abstract class WebManager extends OpponentManager {
                         UnoCard oldCard = cardObject.getCard();
                         UnoCard newCard = newHand[i];
                         if (oldCard == null || oldCard.canBecome(newCard)) {
-                            cardObject.setCard(newCard);
+                            setCard(i, newCard);
                         } else {
                             invalid("Opponent tried to reveal "+oldCard+" as "+newCard+".");
                             return;
@@ -293,8 +300,14 @@ public abstract class WebManager extends OpponentManager {
             if (!Uno.isCompatible(message.contents)) {
                 write("incompatible", Integer.toString(Uno.BACK_COMPAT_VERSION));
                 if (close()) Uno.opponentIncompatible(message.contents);
+            } else if (!usesStandardRules(message.contents) || DeckManager.configuredRules() != Rules.STANDARD) {
+                write("incompatibleRules", DeckManager.configuredRules().toString());
+                if (close()) Uno.rulesIncompatible();
             }
             return;
+        case "incompatibleRules":
+            if (close()) Uno.rulesIncompatible();
+            return;
         case "incompatible":
             if (close()) Uno.playerIncompatible(message.contents);
             return;
@@ -310,6 +323,12 @@ public abstract class WebManager extends OpponentManager {
         }
     }
 
+    // Versions from before house rules only send a number, and always play by the standard rules
+    private static boolean usesStandardRules(String versionInfo) {
+        String[] parts = versionInfo.split(" ");
+        return parts.length < 2 || parts[1].equals(Rules.STANDARD.toString());
+    }
+
     private void requireTurn() {
         if (!isTurn) {
             invalid("Opponent moved out of turn.");
@@ -325,7 +344,7 @@ public abstract class WebManager extends OpponentManager {
         System.err.flush();
     }
 
-    private void invalid(String msg) {
+    void invalid(String msg) {
         error(msg);
         write("invalid");
         sendDebug();
@@ -373,6 +392,12 @@ public abstract class WebManager extends OpponentManager {
         return handlerFor(kind, false).next(kind);
     }
 
+    // The other side only hears about the cards drawn on a turn, so a penalty card dealt here would never reach it
+    @Override
+    public boolean canPeek() {
+        return false;
+    }
+
     @Override
     public void playerDrawCard() {
         write("drawCard");
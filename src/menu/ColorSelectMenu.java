@@ -1,7 +1,6 @@
 package menu;
 
 import card.UnoCard;
-import card.WildCard;
 import display.UnoPanel;
 
 import java.awt.*;
@@ -12,14 +11,12 @@ public final class ColorSelectMenu implements UnoMenu {
     private static final int HEIGHT = 200;
     private static final int BUTTON_SIZE = 75;
 
-    private WildCard card;
     private int c;
 
     private Point boxLocation;
     private Point[] buttonLocations;
 
-    public ColorSelectMenu(WildCard card, int c) {
-        this.card = card;
+    public ColorSelectMenu(int c) {
         this.c = c;
     }
 
@@ -63,9 +60,8 @@ public final class ColorSelectMenu implements UnoMenu {
             for (int color = 0; color < 4; color++) {
                 Point p = buttonLocations[color];
                 if (x >= p.x && x < p.x+BUTTON_SIZE && y >= p.y && y < p.y+BUTTON_SIZE) {
-                    card.setColor(color);
                     UnoPanel.setMenu(null);
-                    UnoPanel.playCard(c);
+                    UnoPanel.playCard(c, color);
                     return true;
                 }
             }
@@ -0,0 +1,213 @@
+package card;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/*
+ *   Checks that drawing from a DrawPile is statistically the same as taking cards in order from a deck shuffled with
+ * Collections.shuffle. Each test counts which card comes out (at the first draw, or at every position in the deck) over
+ * many deals with both methods, then runs a chi-square test of each against the exact expected frequencies and of the
+ * two against each other. Seeds are fixed, so the results are the same on every run.
+ *
+ *   Usage: java card.DrawPileTest
+ */
+public final class DrawPileTest {
+    private static final long SEED = 3108;
+    private static final int TRIALS = 100_000;
+    // Positions in the deck are grouped so that every cell has plenty of expected cards
+    private static final int POSITION_GROUPS = 12;
+    // The normal quantile for a false failure rate of 1 in 10,000 per test
+    private static final double Z = 3.719;
+
+    private static int failures = 0;
+
+    private DrawPileTest() {}
+
+    public static void main(String[] args) {
+        testFirstDraw();
+        testPositions();
+        testDrawMatching();
+        testRefill();
+        if (failures != 0) {
+            System.out.println(failures+" failed");
+            System.exit(1);
+        }
+        System.out.println("All passed");
+    }
+
+    // Which card is drawn first from a full deck
+    private static void testFirstDraw() {
+        List<UnoCard> deck = UnoCard.newDeck();
+        long[] sampled = new long[UnoCard.ID_COUNT];
+        long[] shuffled = new long[UnoCard.ID_COUNT];
+        SplittableRandom random = new SplittableRandom(SEED);
+        Random shuffleRandom = new Random(SEED);
+        List<UnoCard> list = new ArrayList<>(deck);
+        DrawPile pile = new DrawPile();
+        for (int trial = 0; trial < TRIALS; trial++) {
+            pile.clear();
+            pile.addNewDeck();
+            sampled[pile.draw(random).getId()]++;
+            Collections.shuffle(list, shuffleRandom);
+            shuffled[list.get(0).getId()]++;
+        }
+        double[] expected = new double[UnoCard.ID_COUNT];
+        for (UnoCard card : deck) {
+            expected[card.getId()] += (double) TRIALS/deck.size();
+        }
+        checkFit("first draw (weighted sampling)", sampled, expected);
+        checkFit("first draw (Collections.shuffle)", shuffled, expected);
+        checkSame("first draw (sampling vs shuffle)", sampled, shuffled);
+    }
+
+    // Which card is at each position when the whole deck is drawn
+    private static void testPositions() {
+        List<UnoCard> deck = UnoCard.newDeck();
+        int size = deck.size();
+        int groupSize = size/POSITION_GROUPS;
+        long[] sampled = new long[POSITION_GROUPS*UnoCard.ID_COUNT];
+        long[] shuffled = new long[POSITION_GROUPS*UnoCard.ID_COUNT];
+        SplittableRandom random = new SplittableRandom(SEED+1);
+        Random shuffleRandom = new Random(SEED+1);
+        List<UnoCard> list = new ArrayList<>(deck);
+        DrawPile pile = new DrawPile();
+        for (int trial = 0; trial < TRIALS; trial++) {
+            pile.clear();
+            pile.addNewDeck();
+            Collections.shuffle(list, shuffleRandom);
+            for (int position = 0; position < size; position++) {
+                int group = position/groupSize*UnoCard.ID_COUNT;
+                sampled[group + pile.draw(random).getId()]++;
+                shuffled[group + list.get(position).getId()]++;
+            }
+        }
+        if (!pile.isEmpty()) {
+            fail("positions: "+pile.size()+" cards left after drawing the whole deck");
+        }
+        double[] expected = new double[sampled.length];
+        for (int group = 0; group < POSITION_GROUPS; group++) {
+            for (UnoCard card : deck) {
+                expected[group*UnoCard.ID_COUNT + card.getId()] += (double) TRIALS*groupSize/size;
+            }
+        }
+        checkFit("positions (weighted sampling)", sampled, expected);
+        checkFit("positions (Collections.shuffle)", shuffled, expected);
+        checkSame("positions (sampling vs shuffle)", sampled, shuffled);
+    }
+
+    // Drawing the first numeric card, as is done for the top of the deck when a game is dealt
+    private static void testDrawMatching() {
+        List<UnoCard> deck = UnoCard.newDeck();
+        long[] sampled = new long[UnoCard.ID_COUNT];
+        long[] shuffled = new long[UnoCard.ID_COUNT];
+        SplittableRandom random = new SplittableRandom(SEED+2);
+        Random shuffleRandom = new Random(SEED+2);
+        List<UnoCard> list = new ArrayList<>(deck);
+        DrawPile pile = new DrawPile();
+        int numeric = 0;
+        for (UnoCard card : deck) {
+            if (card.isNumeric()) {
+                numeric++;
+            }
+        }
+        for (int trial = 0; trial < TRIALS; trial++) {
+            pile.clear();
+            pile.addNewDeck();
+            sampled[pile.drawMatching(CardSet.numericMask(), random).getId()]++;
+            Collections.shuffle(list, shuffleRandom);
+            for (UnoCard card : list) {
+                if (card.isNumeric()) {
+                    shuffled[card.getId()]++;
+                    break;
+                }
+            }
+        }
+        double[] expected = new double[UnoCard.ID_COUNT];
+        for (UnoCard card : deck) {
+            if (card.isNumeric()) {
+                expected[card.getId()] += (double) TRIALS/numeric;
+            }
+        }
+        checkFit("first numeric card (weighted sampling)", sampled, expected);
+        checkFit("first numeric card (Collections.shuffle)", shuffled, expected);
+        checkSame("first numeric card (sampling vs shuffle)", sampled, shuffled);
+    }
+
+    // Discarded wild cards keep their color, which must be dropped when they go back into the pile
+    private static void testRefill() {
+        DrawPile pile = new DrawPile();
+        List<UnoCard> discard = new ArrayList<>();
+        discard.add(UnoCard.fromId(UnoCard.wildId(true, UnoCard.COLOR_MIN)));
+        discard.add(UnoCard.fromId(UnoCard.wildId(false, UnoCard.COLOR_MAX)));
+        discard.add(UnoCard.fromId(UnoCard.normalId(UnoCard.COLOR_MIN+1, 7)));
+        pile.addAll(discard);
+        if (pile.size() != 3 || pile.count(UnoCard.wildId(true, UnoCard.NO_COLOR)) != 1
+                || pile.count(UnoCard.wildId(false, UnoCard.NO_COLOR)) != 1
+                || pile.count(UnoCard.normalId(UnoCard.COLOR_MIN+1, 7)) != 1) {
+            fail("refill: the pile doesn't hold the uncolored discarded cards");
+        }
+        SplittableRandom random = new SplittableRandom(SEED+3);
+        for (int i = 0; i < 3; i++) {
+            UnoCard card = pile.draw(random);
+            int id = card.getId();
+            if (id == UnoCard.wildId(true, UnoCard.COLOR_MIN) || id == UnoCard.wildId(false, UnoCard.COLOR_MAX)) {
+                fail("refill: drew a wild card that still has a color");
+            }
+        }
+        if (!pile.isEmpty()) {
+            fail("refill: cards left after drawing everything");
+        }
+    }
+
+    private static void checkFit(String name, long[] observed, double[] expected) {
+        double chiSquare = 0;
+        int cells = 0;
+        for (int i = 0; i < observed.length; i++) {
+            if (expected[i] == 0) {
+                if (observed[i] != 0) {
+                    fail(name+": drew a card that shouldn't be possible ("+i+")");
+                    return;
+                }
+                continue;
+            }
+            double diff = observed[i] - expected[i];
+            chiSquare += diff*diff/expected[i];
+            cells++;
+        }
+        report(name, chiSquare, cells-1);
+    }
+
+    private static void checkSame(String name, long[] a, long[] b) {
+        double chiSquare = 0;
+        int cells = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] + b[i] != 0) {
+                double diff = a[i] - b[i];
+                chiSquare += diff*diff/(a[i] + b[i]);
+                cells++;
+            }
+        }
+        report(name, chiSquare, cells-1);
+    }
+
+    private static void report(String name, double chiSquare, int degrees) {
+        // The Wilson-Hilferty approximation of the chi-square quantile
+        double a = 2.0/(9*degrees);
+        double critical = degrees*Math.pow(1 - a + Z*Math.sqrt(a), 3);
+        String result = String.format("%s: chi-square %.1f with %d degrees of freedom (critical %.1f)",
+            name, chiSquare, degrees, critical);
+        if (chiSquare > critical) {
+            fail(result);
+        } else {
+            System.out.println("ok   "+result);
+        }
+    }
+
+    private static void fail(String message) {
+        failures++;
+        System.out.println("FAIL "+message);
+    }
+}
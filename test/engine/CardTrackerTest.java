@@ -0,0 +1,173 @@
+package engine;
+
+import card.CardSet;
+import card.UnoCard;
+
+/*
+ *   Checks how CardTracker narrows down the other hand when that seat draws instead of playing. Each test builds up a
+ * history of failed turns and draws and then checks what the tracker expects the hand to hold. Voids are trusted much
+ * more than they would be at the start of a session (by confirming them many times first), so that a card that is wrongly
+ * given a void shows up clearly.
+ *
+ *   Usage: java engine.CardTrackerTest
+ */
+public final class CardTrackerTest {
+    private static final int FIRST_COLOR = UnoCard.COLOR_MIN;
+    private static final int SECOND_COLOR = UnoCard.COLOR_MAX;
+    private static final int HAND_SIZE = 7;
+    private static final double TOLERANCE = 1e-9;
+
+    private static int failures = 0;
+
+    private CardTrackerTest() {}
+
+    public static void main(String[] args) {
+        testDrawBetweenFailedTurns();
+        testPlayFromLaterGroup();
+        testRevealFromLaterGroup();
+        testManyFailedTurns();
+        testSwappedHand();
+        if (failures != 0) {
+            System.out.println(failures+" failed");
+            System.exit(1);
+        }
+        System.out.println("All passed");
+    }
+
+    // A card drawn after one failed turn only shares the voids of the failed turns after it
+    private static void testDrawBetweenFailedTurns() {
+        CardTracker tracker = trustingTracker();
+        tracker.opponentCouldNotPlay(first());
+        tracker.opponentDrew();
+        tracker.opponentCouldNotPlay(second());
+        check("hand size", tracker.handSize() == HAND_SIZE+1);
+        check("voids are those of the last failed turn", tracker.voids() == CardSet.playableOn(second()));
+
+        // Only the drawn card can be in the first color, and it is as likely to be as any card that isn't playable now
+        long firstOnly = CardSet.colorMask(FIRST_COLOR) & ~CardSet.playableOn(second());
+        double share = (double) unseenIn(tracker, firstOnly)
+            / (unseenIn(tracker, -1L) - unseenIn(tracker, CardSet.playableOn(second())));
+        double expected = tracker.expectedIn(firstOnly);
+        check(String.format("drawn card keeps its chance of being in the first color (%.3f, about %.3f)",
+            expected, share), expected > 0.9*share && expected < share + 0.05);
+
+        // Nothing held on the second failed turn could be played then
+        double playable = tracker.expectedIn(CardSet.playableOn(second()));
+        check(String.format("no playable cards on the last failed turn (%.3f)", playable), playable < 0.05);
+    }
+
+    // Playing a card from the first color after the draw is explained by the drawn card, so the voids still hold
+    private static void testPlayFromLaterGroup() {
+        CardTracker tracker = trustingTracker();
+        tracker.opponentCouldNotPlay(first());
+        tracker.opponentDrew();
+        tracker.opponentCouldNotPlay(second());
+        double trust = tracker.voidTrust();
+        tracker.opponentPlayed(firstOnlyCard());
+        check("playing the drawn card isn't a miss", Math.abs(tracker.voidTrust() - trust) < TOLERANCE);
+        check("hand size after playing", tracker.handSize() == HAND_SIZE);
+
+        // Now only the original cards are left, and none of them could be played on either failed turn
+        tracker.opponentPlayed(firstOnlyCard());
+        check("playing a second card from the first color is a miss", tracker.voidTrust() < trust);
+        check("voids are cleared after a miss", tracker.voids() == 0);
+    }
+
+    private static void testRevealFromLaterGroup() {
+        CardTracker fits = trustingTracker();
+        fits.opponentCouldNotPlay(first());
+        fits.opponentDrew();
+        fits.opponentCouldNotPlay(second());
+        double trust = fits.voidTrust();
+        fits.reveal(new int[] {firstOnlyCard()}, 1);
+        check("revealing the drawn card isn't a miss", fits.voidTrust() > trust);
+
+        CardTracker misses = trustingTracker();
+        misses.opponentCouldNotPlay(first());
+        misses.opponentDrew();
+        misses.opponentCouldNotPlay(second());
+        misses.reveal(new int[] {firstOnlyCard(), firstOnlyCard()}, 2);
+        check("revealing two cards from the first color is a miss", misses.voidTrust() < trust);
+    }
+
+    // Old groups are merged once there are too many, which must never give a card voids it didn't have
+    private static void testManyFailedTurns() {
+        CardTracker tracker = trustingTracker();
+        int size = HAND_SIZE;
+        for (int turn = 0; turn < 10; turn++) {
+            tracker.opponentCouldNotPlay(turn%2 == 0 ? first() : second());
+            tracker.opponentDrew();
+            size++;
+        }
+        tracker.opponentCouldNotPlay(second());
+        check("hand size after many turns", tracker.handSize() == size);
+        long firstOnly = CardSet.colorMask(FIRST_COLOR) & ~CardSet.playableOn(second());
+        check("drawn cards can still be in the first color", tracker.expectedIn(firstOnly) > 0.1);
+        double trust = tracker.voidTrust();
+        tracker.opponentPlayed(firstOnlyCard());
+        check("playing the last drawn card isn't a miss", Math.abs(tracker.voidTrust() - trust) < TOLERANCE);
+    }
+
+    // After hands are swapped the other hand is known, so playing from it is never a miss and nothing is guessed
+    private static void testSwappedHand() {
+        CardTracker tracker = trustingTracker();
+        tracker.opponentCouldNotPlay(first());
+        CardSet hand = new CardSet();
+        hand.add(first());
+        hand.add(firstOnlyCard());
+        tracker.handsSwapped(new CardSet(), hand);
+        check("hand size after swapping", tracker.handSize() == 2);
+        check("known cards are held", tracker.holdsProbability(firstOnlyCard()) == 1);
+        check("only known cards are expected",
+            Math.abs(tracker.expectedIn(CardSet.colorMask(FIRST_COLOR)) - 2) < TOLERANCE);
+        double trust = tracker.voidTrust();
+        tracker.opponentPlayed(first());
+        check("playing a known card isn't a miss", Math.abs(tracker.voidTrust() - trust) < TOLERANCE);
+        tracker.opponentDrew();
+        check("hand size after drawing", tracker.handSize() == 2);
+    }
+
+    // A tracker with a fresh hand, whose voids have been confirmed by many revealed hands
+    private static CardTracker trustingTracker() {
+        CardTracker tracker = new CardTracker();
+        tracker.reset(first(), 1);
+        tracker.opponentCouldNotPlay(first());
+        for (int i = 0; i < 1000; i++) {
+            tracker.reveal(new int[0], 0);
+        }
+        tracker.reset(first(), HAND_SIZE);
+        return tracker;
+    }
+
+    private static int first() {
+        return UnoCard.normalId(FIRST_COLOR, 5);
+    }
+
+    private static int second() {
+        return UnoCard.normalId(SECOND_COLOR, 3);
+    }
+
+    // A card in the first color that couldn't have been played on the second failed turn
+    private static int firstOnlyCard() {
+        return UnoCard.normalId(FIRST_COLOR, 7);
+    }
+
+    private static int unseenIn(CardTracker tracker, long mask) {
+        int count = 0;
+        for (int id = 0; id < UnoCard.ID_COUNT; id++) {
+            if (CardSet.contains(mask, id)) {
+                count += tracker.unseenCount(id);
+            }
+        }
+        return count;
+    }
+
+    private static void check(String name, boolean passed) {
+        if (passed) {
+            System.out.println("ok   "+name);
+        } else {
+            failures++;
+            System.out.println("FAIL "+name);
+        }
+    }
+}